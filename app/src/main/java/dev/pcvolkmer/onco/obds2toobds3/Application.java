@@ -1,29 +1,77 @@
 package io.github.bzkf.obds2toobds3;
 
 import org.apache.commons.cli.*;
-import org.apache.commons.io.input.BOMInputStream;
-import org.apache.commons.io.IOUtils;
 
-import de.basisdatensatz.obds.v2.ADTGEKID;
 import io.github.bzkf.obds2toobds3.ObdsMapper;
 
+import org.apache.commons.io.input.BOMInputStream;
+
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Application {
     public static void main(String[] args) throws Exception {
         final var options = new Options();
         options.addOption(
-                Option.builder("i").longOpt("input").argName("input").hasArg().desc("Input file").converter(File::new)
-                        .build());
+                Option.builder("i").longOpt("input").argName("input").hasArg()
+                        .desc("Input file, or input directory, ZIP archive or glob pattern to convert multiple files")
+                        .converter(File::new).build());
         options.addOption(
-                Option.builder("o").longOpt("output").argName("output").hasArg().desc("Output file")
+                Option.builder("o").longOpt("output").argName("output").hasArg()
+                        .desc("Output file, or output directory to convert multiple files")
                         .converter(File::new).build());
+        options.addOption(
+                Option.builder().longOpt("workers").argName("count").hasArg().type(Number.class)
+                        .desc("Number of files or requests converted concurrently (default: number of processors)").build());
         options.addOption(
                 Option.builder().longOpt("ignore-unmappable").desc("Ignore unmappable messages and patients").build());
         options.addOption(
                 Option.builder().longOpt("fix-missing-id").desc("Fix missing IDs by generating hash values").build());
+        options.addOption(
+                Option.builder().longOpt("legacy-id-hash")
+                        .desc("Generate missing Meldung IDs like versions up to 0.1.x").build());
+        options.addOption(
+                Option.builder().longOpt("pipeline")
+                        .desc("Read, map and write patients concurrently in separate stages").build());
+        options.addOption(
+                Option.builder().longOpt("ignore-invalid-patients")
+                        .desc("Skip patients not valid against the schema instead of failing").build());
+        options.addOption(
+                Option.builder().longOpt("gzip").desc("Compress output files using gzip").build());
+        options.addOption(
+                Option.builder().longOpt("split-patients").argName("count").hasArg().type(Number.class)
+                        .desc("Split output into documents of at most given number of patients").build());
+        options.addOption(
+                Option.builder().longOpt("split-size").argName("size").hasArg()
+                        .desc("Split output into documents completed after given size, e.g. 100M").build());
+        options.addOption(
+                Option.builder().longOpt("shard").argName("index/count").hasArg()
+                        .desc("Convert only patients of given shard selected by Patient_ID, e.g. 2/4").build());
+        options.addOption(
+                Option.builder().longOpt("merge").argName("files").hasArgs().valueSeparator(',')
+                        .desc("Merge converted shard files, ordered by shard, into the output file "
+                                + "using the order of patients of the input file").build());
+        options.addOption(
+                Option.builder().longOpt("server").argName("port").hasArg().type(Number.class)
+                        .desc("Run as HTTP server converting POSTed files on given port").build());
+        options.addOption(
+                Option.builder().longOpt("bind").argName("address").hasArg()
+                        .desc("Address the HTTP server listens on (default: 127.0.0.1)").build());
+        options.addOption(
+                Option.builder().longOpt("watch").argName("inbox").hasArg()
+                        .desc("Watch inbox directory and convert new files into the output directory").build());
+        options.addOption(
+                Option.builder().longOpt("done").argName("directory").hasArg()
+                        .desc("Directory watched files are moved to after conversion (default: <inbox>/done)")
+                        .build());
+        options.addOption(
+                Option.builder().longOpt("failed").argName("directory").hasArg()
+                        .desc("Directory watched files are moved to if conversion failed (default: <inbox>/failed)")
+                        .build());
         options.addOption(
                 Option.builder("v").desc("Show errors").build());
         options.addOption(
@@ -31,51 +79,223 @@ public class Application {
 
         final var parsedCliArgs = DefaultParser.builder().build().parse(options, args);
 
-        if (parsedCliArgs.hasOption("h") || !parsedCliArgs.hasOption("i") || !parsedCliArgs.hasOption("o")) {
+        if (parsedCliArgs.hasOption("server")) {
+            startServer(parsedCliArgs);
+        } else if (parsedCliArgs.hasOption("watch") && parsedCliArgs.hasOption("o")) {
+            watch(parsedCliArgs);
+        } else if (parsedCliArgs.hasOption("merge") && parsedCliArgs.hasOption("i") && parsedCliArgs.hasOption("o")) {
+            merge(parsedCliArgs);
+        } else if (parsedCliArgs.hasOption("h") || !parsedCliArgs.hasOption("i") || !parsedCliArgs.hasOption("o")) {
             new HelpFormatter()
                     .printHelp("java -jar obds2-to-obds3-app.jar --input <input file> --output <output file>", options);
         } else {
+            var batch = BatchConverter.isBatchInput(parsedCliArgs.getOptionValue("i"));
             try {
-                var input = Paths.get(parsedCliArgs.getOptionValue("i"));
-                var output = Paths.get(parsedCliArgs.getOptionValue("o"));
+                var converter = createConverter(parsedCliArgs);
 
-                var mapper = ObdsMapper.builder()
-                        .ignoreUnmappable(parsedCliArgs.hasOption("ignore-unmappable"))
-                        .fixMissingId(parsedCliArgs.hasOption("fix-missing-id"))
-                        .build();
-                var bomInputStream = BOMInputStream.builder().setInputStream(Files.newInputStream(input)).get();
+                if (batch) {
+                    var results = new BatchConverter(converter, workers(parsedCliArgs), parsedCliArgs.hasOption("gzip"))
+                            .convert(parsedCliArgs.getOptionValue("i"), Paths.get(parsedCliArgs.getOptionValue("o")));
+                    printBatchResults(results, parsedCliArgs);
+                    if (results.stream().anyMatch(result -> !result.isSuccess())) {
+                        System.exit(1);
+                    }
+                    return;
+                }
 
-                var inputObj = mapper.readValue(IOUtils.toString(bomInputStream, StandardCharsets.UTF_8),
-                        ADTGEKID.class);
-                var mappedString = mapper.writeMappedXmlString(inputObj);
+                var input = Paths.get(parsedCliArgs.getOptionValue("i"));
+                var output = Paths.get(parsedCliArgs.getOptionValue("o"));
+                var result = converter.convert(input, output,
+                        parsedCliArgs.hasOption("gzip") || Converter.isGzip(output));
 
                 if (parsedCliArgs.hasOption("v") || parsedCliArgs.hasOption("vv")) {
-                    var outputObj = mapper.map(inputObj);
-                    var inPatientsCount = inputObj.getMengePatient().getPatient().size();
-                    var inMessagesCount = inputObj.getMengePatient().getPatient().stream()
-                            .mapToLong(patient -> patient.getMengeMeldung().getMeldung().size()).sum();
-                    var outPatientsCount = outputObj.getMengePatient().getPatient().size();
-                    var outMessageCount = outputObj.getMengePatient().getPatient().stream()
-                            .mapToLong(patient -> patient.getMengeMeldung().getMeldung().size()).sum();
-
-                    System.err
-                            .println(String.format("Patienten >  In: %d, Out: %d ", inPatientsCount, outPatientsCount));
-                    System.err
-                            .println(String.format("Meldungen >  In: %d, Out: %d ", inMessagesCount, outMessageCount));
+                    printResult(result);
                 }
-
-                Files.writeString(output, mappedString);
             } catch (Exception e) {
                 System.err.println("Konvertierung fehlgeschlagen");
                 if (parsedCliArgs.hasOption("v")) {
                     System.err.println(e.getLocalizedMessage());
-                    System.err.println(e.getCause().getLocalizedMessage());
+                    if (null != e.getCause()) {
+                        System.err.println(e.getCause().getLocalizedMessage());
+                    }
                 } else if (parsedCliArgs.hasOption("vv")) {
                     throw e;
                 }
+                if (batch) {
+                    // Batch runs are usually scripted and must not look successful
+                    System.exit(1);
+                }
             }
 
         }
 
     }
+
+    private static ObdsMapper createMapper(CommandLine parsedCliArgs) {
+        return ObdsMapper.builder()
+                .ignoreUnmappable(parsedCliArgs.hasOption("ignore-unmappable"))
+                .fixMissingId(parsedCliArgs.hasOption("fix-missing-id"))
+                .legacyMeldungIdHash(parsedCliArgs.hasOption("legacy-id-hash"))
+                .ignoreInvalidPatients(parsedCliArgs.hasOption("ignore-invalid-patients"))
+                .patientShard(parsedCliArgs.hasOption("shard") ? PatientShard.parse(parsedCliArgs.getOptionValue("shard")) : null)
+                .build();
+    }
+
+    private static Converter createConverter(CommandLine parsedCliArgs) throws ParseException {
+        var split = new Converter.Split(
+                parsedCliArgs.hasOption("split-patients")
+                        ? ((Number) parsedCliArgs.getParsedOptionValue("split-patients")).intValue()
+                        : 0,
+                parsedCliArgs.hasOption("split-size") ? parseSize(parsedCliArgs.getOptionValue("split-size")) : 0
+        );
+        if (split.isEnabled() && parsedCliArgs.hasOption("pipeline")) {
+            throw new ParseException("--pipeline kann nicht mit aufgeteilter Ausgabe verwendet werden");
+        }
+        if (split.isEnabled() && parsedCliArgs.hasOption("shard")) {
+            throw new ParseException("--shard kann nicht mit aufgeteilter Ausgabe verwendet werden");
+        }
+        return new Converter(createMapper(parsedCliArgs), parsedCliArgs.hasOption("pipeline"), split);
+    }
+
+    /**
+     * Parses a size in bytes with an optional suffix K, M or G
+     */
+    private static long parseSize(String value) throws ParseException {
+        final var size = value.trim().toUpperCase();
+        final var unit = size.isEmpty() ? -1 : "KMG".indexOf(size.charAt(size.length() - 1));
+        try {
+            final var number = Long.parseLong(unit < 0 ? size : size.substring(0, size.length() - 1));
+            if (number < 0) {
+                throw new ParseException("Ungültige Größe: " + value);
+            }
+            return number << (unit < 0 ? 0 : 10 * (unit + 1));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Ungültige Größe: " + value);
+        }
+    }
+
+    private static int workers(CommandLine parsedCliArgs) throws ParseException {
+        return parsedCliArgs.hasOption("workers")
+                ? ((Number) parsedCliArgs.getParsedOptionValue("workers")).intValue()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void startServer(CommandLine parsedCliArgs) throws Exception {
+        var port = ((Number) parsedCliArgs.getParsedOptionValue("server")).intValue();
+        var address = new InetSocketAddress(parsedCliArgs.getOptionValue("bind", "127.0.0.1"), port);
+        var server = new ConversionServer(createMapper(parsedCliArgs), address, workers(parsedCliArgs));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.err.println(String.format("Server gestartet >  http://%s:%d/convert",
+                server.getAddress().getHostString(), server.getAddress().getPort()));
+    }
+
+    private static void printResult(Converter.Result result) {
+        for (var stage : result.stages()) {
+            System.err.println(String.format("%-10s>  Anzahl: %d, Dauer: %d ms, Durchsatz: %.1f/s ",
+                    stage.getName(), stage.getItems(), stage.getBusyMillis(), stage.getThroughput()));
+        }
+        var mappingResult = result.mappingResult();
+        if (null != mappingResult) {
+            System.err.println(String.format("Patienten >  In: %d, Out: %d ",
+                    mappingResult.patientsIn(), mappingResult.patientsOut()));
+            System.err.println(String.format("Meldungen >  In: %d, Out: %d ",
+                    mappingResult.meldungenIn(), mappingResult.meldungenOut()));
+            for (var reason : DropReason.values()) {
+                if (mappingResult.droppedMeldungen(reason) > 0) {
+                    System.err.println(String.format("Verworfen >  Grund: %s, Anzahl: %d",
+                            reason, mappingResult.droppedMeldungen(reason)));
+                }
+            }
+        }
+        if (result.outputs().size() > 1) {
+            System.err.println(String.format("Ausgabe   >  Dateien: %d", result.outputs().size()));
+        }
+        printInvalidPatients(result.invalidPatients());
+    }
+
+    private static void watch(CommandLine parsedCliArgs) throws Exception {
+        var inbox = Paths.get(parsedCliArgs.getOptionValue("watch"));
+        var daemon = new WatchFolderDaemon(
+                createConverter(parsedCliArgs),
+                workers(parsedCliArgs),
+                inbox,
+                Paths.get(parsedCliArgs.getOptionValue("o")),
+                parsedCliArgs.hasOption("done") ? Paths.get(parsedCliArgs.getOptionValue("done")) : inbox.resolve("done"),
+                parsedCliArgs.hasOption("failed") ? Paths.get(parsedCliArgs.getOptionValue("failed")) : inbox.resolve("failed"),
+                parsedCliArgs.hasOption("gzip"),
+                result -> printFileResult(result, parsedCliArgs)
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+        System.err.println(String.format("Überwache >  %s", inbox));
+        daemon.run();
+    }
+
+    private static void merge(CommandLine parsedCliArgs) throws Exception {
+        var input = Paths.get(parsedCliArgs.getOptionValue("i"));
+        var output = Paths.get(parsedCliArgs.getOptionValue("o"));
+        var shards = new ArrayList<InputStream>();
+        try {
+            for (var shard : parsedCliArgs.getOptionValues("merge")) {
+                shards.add(Converter.decompressed(Files.newInputStream(Paths.get(shard))));
+            }
+            try (var inputStream = BOMInputStream.builder()
+                    .setInputStream(Converter.decompressed(Files.newInputStream(input))).get();
+                 var outputStream = Converter.compressed(Files.newOutputStream(output),
+                         parsedCliArgs.hasOption("gzip") || Converter.isGzip(output))) {
+                ObdsMapper.builder().build().mergeShards(inputStream, shards, outputStream);
+            }
+            System.err.println(String.format("Shards    >  Anzahl: %d, Ausgabe: %s", shards.size(), output));
+        } catch (Exception e) {
+            for (var shard : shards) {
+                shard.close();
+            }
+            // Do not leave a partially written file behind that looks like a result
+            Files.deleteIfExists(output);
+            System.err.println("Zusammenführen fehlgeschlagen");
+            if (parsedCliArgs.hasOption("v")) {
+                System.err.println(e.getLocalizedMessage());
+            } else if (parsedCliArgs.hasOption("vv")) {
+                throw e;
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void printBatchResults(List<BatchConverter.FileResult> results, CommandLine parsedCliArgs) {
+        for (var result : results) {
+            printFileResult(result, parsedCliArgs);
+        }
+        var failed = results.stream().filter(result -> !result.isSuccess()).count();
+        System.err.println(String.format("Dateien   >  Gesamt: %d, Erfolgreich: %d, Fehlgeschlagen: %d",
+                results.size(), results.size() - failed, failed));
+    }
+
+    private static synchronized void printFileResult(BatchConverter.FileResult result, CommandLine parsedCliArgs) {
+        if (result.isSuccess()) {
+            System.err.println(String.format("OK        >  %s -> %s (%d ms)",
+                    result.input(), result.output(), result.durationMillis()));
+            if (parsedCliArgs.hasOption("v") || parsedCliArgs.hasOption("vv")) {
+                printResult(result.result());
+            }
+        } else {
+            System.err.println(String.format("Fehler    >  %s (%d ms)", result.input(), result.durationMillis()));
+            if (parsedCliArgs.hasOption("v")) {
+                System.err.println(result.error().getLocalizedMessage());
+                if (null != result.error().getCause()) {
+                    System.err.println(result.error().getCause().getLocalizedMessage());
+                }
+            } else if (parsedCliArgs.hasOption("vv")) {
+                result.error().printStackTrace();
+            }
+        }
+    }
+
+    private static void printInvalidPatients(List<PatientValidationError> invalidPatients) {
+        for (var invalidPatient : invalidPatients) {
+            System.err.println(String.format("Ungültiger Patient >  ID: %s, Zeile: %d, Spalte: %d, Fehler: %s",
+                    invalidPatient.patientId(), invalidPatient.lineNumber(), invalidPatient.columnNumber(),
+                    invalidPatient.message()));
+        }
+    }
 }
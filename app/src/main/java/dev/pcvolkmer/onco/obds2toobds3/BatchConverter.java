@@ -0,0 +1,275 @@
+package io.github.bzkf.obds2toobds3;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Converts all files of a directory or matching a glob pattern within one JVM.
+ * Files are converted concurrently by a fixed number of workers sharing one mapper,
+ * so JVM startup, Jackson introspection and schema compilation are paid only once.
+ * <p>
+ * The XML files within ZIP archives are read from the archive without unpacking it
+ * and are converted concurrently like any other file.
+ * <p>
+ * Each output file is written by one input only: if inputs map to the same output file,
+ * e.g. <code>a.xml</code> and <code>a.xml.gz</code> with gzip output, only the first one is converted
+ * and the others fail without being submitted.
+ */
+class BatchConverter {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final String DEFAULT_GLOB = "*.{xml,xml.gz,zip}";
+    private static final String ZIP_EXTENSION = ".zip";
+
+    private final Converter converter;
+    private final int workers;
+    private final boolean gzipOutput;
+
+    BatchConverter(Converter converter, int workers, boolean gzipOutput) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        this.converter = converter;
+        this.workers = workers;
+        this.gzipOutput = gzipOutput;
+    }
+
+    /**
+     * Returns true if given input is a directory, a ZIP archive or a glob pattern rather than a single file
+     */
+    static boolean isBatchInput(String input) {
+        return isGlob(input) || Files.isDirectory(Paths.get(input)) || isZip(Paths.get(input));
+    }
+
+    /**
+     * Converts all input files into the output directory. Files keep their name and their path relative to the
+     * input directory or the directory the glob pattern starts at. Entries of ZIP archives are written into a
+     * directory named like the archive.
+     *
+     * @param input Input directory - all XML, gzip compressed XML and ZIP files within -, ZIP archive or
+     *              glob pattern, e.g. <code>exports/*&#47;*.xml</code>
+     * @param outputDirectory The output directory, created if it does not exist
+     * @return the results of all files, sorted by input file
+     */
+    List<FileResult> convert(String input, Path outputDirectory) throws IOException, InterruptedException {
+        final var inputs = findInputs(input);
+        Files.createDirectories(outputDirectory);
+
+        final var executor = Executors.newFixedThreadPool(workers);
+        try {
+            final var outputs = new HashSet<Path>();
+            final var futures = new ArrayList<Future<FileResult>>();
+            for (var file : inputs.files()) {
+                final var relativePath = inputs.baseDirectory().relativize(file).toString();
+                if (isZip(file)) {
+                    final var entryDirectory = outputDirectory.resolve(
+                            relativePath.substring(0, relativePath.length() - ZIP_EXTENSION.length()));
+                    futures.addAll(submitEntries(executor, file, entryDirectory, outputs));
+                } else {
+                    final var output = outputFile(outputDirectory.resolve(relativePath));
+                    if (claimOutput(outputs, output)) {
+                        futures.add(executor.submit(() -> convert(file, output)));
+                    } else {
+                        futures.add(CompletableFuture.completedFuture(outputClash(file, output)));
+                    }
+                }
+            }
+
+            final var results = new ArrayList<FileResult>();
+            for (var future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // convert() catches all exceptions of a conversion
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Future<FileResult>> submitEntries(
+            ExecutorService executor, Path file, Path entryDirectory, Set<Path> outputs) {
+        final ZipFile zipFile;
+        final List<? extends ZipEntry> entries;
+        try {
+            zipFile = new ZipFile(file.toFile());
+            entries = zipFile.stream().filter(BatchConverter::isConvertible).toList();
+        } catch (IOException e) {
+            return List.of(CompletableFuture.completedFuture(new FileResult(file, entryDirectory, null, e, 0)));
+        }
+        if (entries.isEmpty()) {
+            closeQuietly(zipFile);
+            return List.of(CompletableFuture.completedFuture(new FileResult(file, entryDirectory, null,
+                    new IOException("Archiv enthält keine XML-Dateien"), 0)));
+        }
+
+        // The archive is closed once all of its entries have been converted
+        final var remaining = new AtomicInteger(entries.size());
+        final var futures = new ArrayList<Future<FileResult>>();
+        for (var entry : entries) {
+            final var output = outputFile(entryDirectory.resolve(entry.getName()).normalize());
+            if (!claimOutput(outputs, output)) {
+                futures.add(CompletableFuture.completedFuture(outputClash(file.resolve(entry.getName()), output)));
+                if (remaining.decrementAndGet() == 0) {
+                    closeQuietly(zipFile);
+                }
+                continue;
+            }
+            futures.add(executor.submit(() -> {
+                try {
+                    if (!output.startsWith(entryDirectory.normalize())) {
+                        // Entries must not be written - or removed on failure - outside of the entry directory
+                        return new FileResult(file.resolve(entry.getName()), output, null,
+                                new IOException("Eintrag liegt außerhalb des Archivs: " + entry.getName()), 0);
+                    }
+                    return convert(file.resolve(entry.getName()), output, () -> converter.convert(
+                            () -> zipFile.getInputStream(entry), output, Converter.isGzip(output)));
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        closeQuietly(zipFile);
+                    }
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private FileResult convert(Path input, Path output) {
+        if (input.toAbsolutePath().normalize().equals(output.toAbsolutePath().normalize())) {
+            return new FileResult(input, output, null,
+                    new IllegalArgumentException("Ausgabedatei entspricht der Eingabedatei"), 0);
+        }
+        return convert(input, output, () -> converter.convert(input, output, Converter.isGzip(output)));
+    }
+
+    private FileResult convert(Path source, Path output, Conversion conversion) {
+        final var start = System.nanoTime();
+        try {
+            if (null != output.getParent()) {
+                Files.createDirectories(output.getParent());
+            }
+            final var result = conversion.run();
+            return new FileResult(source, output, result, null, millisSince(start));
+        } catch (Exception e) {
+            // Nothing to clean up - the converter moves an output into place only once it is complete, so an
+            // existing output is left untouched
+            return new FileResult(source, output, null, e, millisSince(start));
+        }
+    }
+
+    /**
+     * Returns false if the output file is already written by another input
+     */
+    private static boolean claimOutput(Set<Path> outputs, Path output) {
+        return outputs.add(output.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Fails an input without converting it, as it would overwrite the output of another input
+     */
+    private static FileResult outputClash(Path input, Path output) {
+        return new FileResult(input, output, null,
+                new IOException("Ausgabedatei wird bereits von einer anderen Eingabedatei geschrieben: " + output), 0);
+    }
+
+    private Path outputFile(Path path) {
+        if (gzipOutput && !Converter.isGzip(path)) {
+            return path.resolveSibling(path.getFileName() + Converter.GZIP_EXTENSION);
+        }
+        return path;
+    }
+
+    static Inputs findInputs(String input) throws IOException {
+        if (!isGlob(input)) {
+            final var path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                return findInputs(path, DEFAULT_GLOB);
+            }
+            return new Inputs(null == path.getParent() ? Paths.get("") : path.getParent(), List.of(path));
+        }
+
+        // The base directory is made up of all leading path segments without glob characters
+        final var segments = input.replace('\\', '/').split("/", -1);
+        var baseSegments = 0;
+        while (baseSegments < segments.length - 1 && !isGlob(segments[baseSegments])) {
+            baseSegments++;
+        }
+        final var baseDirectory = String.join("/", List.of(segments).subList(0, baseSegments));
+        final var pattern = String.join("/", List.of(segments).subList(baseSegments, segments.length));
+        if (baseSegments == 0) {
+            return findInputs(Paths.get(""), pattern);
+        }
+        // An absolute path starts with an empty segment
+        return findInputs(Paths.get(baseDirectory.isEmpty() ? "/" : baseDirectory), pattern);
+    }
+
+    private static Inputs findInputs(Path baseDirectory, String pattern) throws IOException {
+        final var matcher = baseDirectory.getFileSystem().getPathMatcher("glob:" + pattern);
+        // Without '**', patterns do not match across directories - no need to walk deeper than the pattern
+        final var maxDepth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("/").length;
+        final var start = baseDirectory.toString().isEmpty() ? Paths.get(".") : baseDirectory;
+
+        try (Stream<Path> paths = Files.walk(start, maxDepth)) {
+            final var files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(start.relativize(path)))
+                    .sorted()
+                    .toList();
+            return new Inputs(start, files);
+        }
+    }
+
+    private static boolean isZip(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(ZIP_EXTENSION) && Files.isRegularFile(file);
+    }
+
+    private static boolean isConvertible(ZipEntry entry) {
+        final var name = entry.getName();
+        // Skip metadata added by macOS
+        return !entry.isDirectory() && !name.startsWith("__MACOSX/") && (name.endsWith(".xml") || name.endsWith(".xml.gz"));
+    }
+
+    private static void closeQuietly(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+
+    private static boolean isGlob(String value) {
+        return value.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    record Inputs(Path baseDirectory, List<Path> files) {
+    }
+
+    private interface Conversion {
+        Converter.Result run() throws Exception;
+    }
+
+    /**
+     * Result of a single file - either the conversion result or the error
+     */
+    record FileResult(Path input, Path output, Converter.Result result, Exception error, long durationMillis) {
+        boolean isSuccess() {
+            return null == error;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io.github.bzkf.obds2toobds3;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.input.BOMInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP server converting POSTed ADT_GEKID documents using one warm, shared mapper.
+ * <ul>
+ *     <li><code>POST /convert</code>: Converts the ADT_GEKID request body and streams back the oBDS document,
+ *     both may be gzip compressed</li>
+ *     <li><code>GET /health</code>: Returns the status of the server</li>
+ *     <li><code>GET /metrics</code>: Returns request counters and latencies in Prometheus text format</li>
+ * </ul>
+ * Each request is handled by its own virtual thread, the number of concurrent conversions is limited.
+ */
+class ConversionServer {
+
+    /**
+     * Output is held back up to this size, so errors in small documents are reported by status code
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+    private static final int STOP_DELAY_SECONDS = 5;
+
+    private final ObdsMapper mapper;
+    private final Semaphore conversions;
+    private final Metrics metrics = new Metrics();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    ConversionServer(ObdsMapper mapper, InetSocketAddress address, int workers) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        this.mapper = mapper;
+        this.conversions = new Semaphore(workers);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/convert", this::handleConvert);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.createContext("/metrics", this::handleMetrics);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits a few seconds for running conversions to finish
+     */
+    void stop() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        if (!allowsMethod(exchange, "POST")) {
+            return;
+        }
+
+        final var start = System.nanoTime();
+        metrics.active.incrementAndGet();
+        final var requestBody = new CountingInputStream(exchange.getRequestBody());
+        final var responseBody = new ResponseOutputStream(exchange);
+        var status = 200;
+        var aborted = false;
+        try {
+            conversions.acquire();
+            // Gzip compressed request bodies are detected by their content
+            try (var bomInputStream = BOMInputStream.builder()
+                    .setInputStream(Converter.decompressed(requestBody)).get()) {
+                exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+                if (acceptsGzip(exchange)) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    // Closing the gzip stream writes its trailer, but does not complete the response
+                    mapper.writeMappedXml(bomInputStream, new GZIPOutputStream(responseBody));
+                } else {
+                    mapper.writeMappedXml(bomInputStream, responseBody);
+                }
+                responseBody.finish();
+            } finally {
+                conversions.release();
+            }
+        } catch (Exception e) {
+            status = statusOf(e);
+            if (responseBody.isCommitted()) {
+                // The status has already been sent - the connection is closed without completing the response,
+                // so the client does not mistake the partial document for a complete one
+                aborted = true;
+                throw new IOException("Conversion failed after response has been committed", e);
+            }
+            exchange.getResponseHeaders().remove("Content-Type");
+            exchange.getResponseHeaders().remove("Content-Encoding");
+            // An unread request body would reset the connection before the client receives the error
+            discardRequestBody(requestBody);
+            sendText(exchange, status, "Konvertierung fehlgeschlagen: " + e.getLocalizedMessage());
+        } finally {
+            metrics.active.decrementAndGet();
+            metrics.record(status, aborted, System.nanoTime() - start, requestBody.count, responseBody.count);
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!allowsMethod(exchange, "GET")) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        sendText(exchange, 200, "{\"status\":\"UP\"}");
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!allowsMethod(exchange, "GET")) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        sendText(exchange, 200, metrics.format());
+    }
+
+    /**
+     * Replies 405 to any other request method
+     */
+    private static boolean allowsMethod(HttpExchange exchange, String method) throws IOException {
+        if (method.equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        discardRequestBody(exchange.getRequestBody());
+        exchange.getResponseHeaders().set("Allow", method);
+        sendText(exchange, 405, "Method Not Allowed");
+        return false;
+    }
+
+    private static void discardRequestBody(InputStream requestBody) {
+        try {
+            requestBody.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // The client is gone - sending the response fails as well
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        final var acceptEncoding = exchange.getRequestHeaders().get("Accept-Encoding");
+        return null != acceptEncoding && acceptEncoding.stream().anyMatch(value -> value.contains("gzip"));
+    }
+
+    private static int statusOf(Exception e) {
+        if (e instanceof SchemaValidatorException || e instanceof UnmappableItemException) {
+            return 422;
+        }
+        if (e instanceof IOException) {
+            return 400;
+        }
+        return 500;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        final var bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Response body buffering output until it exceeds the buffer size and ignoring close() until finished,
+     * so an unfinished response is never completed by closing it
+     */
+    private static class ResponseOutputStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream body;
+        private long count;
+
+        private ResponseOutputStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            if (null != body) {
+                body.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() > RESPONSE_BUFFER_SIZE) {
+                // Unknown length - chunked transfer encoding
+                exchange.sendResponseHeaders(200, 0);
+                body = exchange.getResponseBody();
+                buffer.writeTo(body);
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (null != body) {
+                body.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            // Completed by finish()
+        }
+
+        private boolean isCommitted() {
+            return null != body;
+        }
+
+        private void finish() throws IOException {
+            if (null == body) {
+                exchange.sendResponseHeaders(200, buffer.size());
+                body = exchange.getResponseBody();
+                buffer.writeTo(body);
+            }
+            body.close();
+        }
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream inputStream;
+        private long count;
+
+        private CountingInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final var result = inputStream.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final var result = inputStream.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            // Closing would drain only a few kilobytes - the request body is closed with the exchange, after the
+            // rest of it has been read
+        }
+    }
+
+    /**
+     * Counters of conversion requests. Latencies are counted in buckets like a Prometheus histogram.
+     */
+    private static class Metrics {
+        private static final double[] BUCKET_SECONDS = {0.01, 0.05, 0.1, 0.5, 1, 5, 10, 60};
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong active = new AtomicLong();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        // Failed after a 200 status has been sent - the client saw the connection being closed
+        private final LongAdder aborted = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder durationNanos = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_SECONDS.length];
+
+        private Metrics() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(int status, boolean aborted, long nanos, long in, long out) {
+            if (aborted) {
+                this.aborted.increment();
+            } else if (status < 400) {
+                succeeded.increment();
+            } else if (status < 500) {
+                clientErrors.increment();
+            } else {
+                serverErrors.increment();
+            }
+            bytesIn.add(in);
+            bytesOut.add(out);
+            durationNanos.add(nanos);
+            for (int i = 0; i < buckets.length; i++) {
+                if (nanos <= BUCKET_SECONDS[i] * 1e9) {
+                    buckets[i].increment();
+                }
+            }
+        }
+
+        private String format() {
+            final var count = succeeded.sum() + clientErrors.sum() + serverErrors.sum() + aborted.sum();
+            final var result = new StringBuilder();
+            result.append("# TYPE obds2toobds3_conversions_total counter\n");
+            line(result, "obds2toobds3_conversions_total{result=\"success\"}", succeeded.sum());
+            line(result, "obds2toobds3_conversions_total{result=\"client_error\"}", clientErrors.sum());
+            line(result, "obds2toobds3_conversions_total{result=\"server_error\"}", serverErrors.sum());
+            line(result, "obds2toobds3_conversions_total{result=\"aborted\"}", aborted.sum());
+            result.append("# TYPE obds2toobds3_conversions_active gauge\n");
+            line(result, "obds2toobds3_conversions_active", active.get());
+            result.append("# TYPE obds2toobds3_conversion_duration_seconds histogram\n");
+            for (int i = 0; i < buckets.length; i++) {
+                line(result, String.format(Locale.ROOT, "obds2toobds3_conversion_duration_seconds_bucket{le=\"%s\"}",
+                        BUCKET_SECONDS[i]), buckets[i].sum());
+            }
+            line(result, "obds2toobds3_conversion_duration_seconds_bucket{le=\"+Inf\"}", count);
+            line(result, "obds2toobds3_conversion_duration_seconds_sum", durationNanos.sum() / 1e9);
+            line(result, "obds2toobds3_conversion_duration_seconds_count", count);
+            result.append("# TYPE obds2toobds3_received_bytes_total counter\n");
+            line(result, "obds2toobds3_received_bytes_total", bytesIn.sum());
+            result.append("# TYPE obds2toobds3_sent_bytes_total counter\n");
+            line(result, "obds2toobds3_sent_bytes_total", bytesOut.sum());
+            result.append("# TYPE obds2toobds3_uptime_seconds gauge\n");
+            line(result, "obds2toobds3_uptime_seconds", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+            return result.toString();
+        }
+
+        private static void line(StringBuilder result, String name, Number value) {
+            result.append(name).append(' ').append(String.format(Locale.ROOT, "%s", value)).append('\n');
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+import org.apache.commons.io.input.BOMInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Converts single ADT_GEKID files using a shared mapper.
+ * Instances do not hold any state of a conversion, so files can be converted concurrently.
+ * <p>
+ * Gzip compressed input is detected by its content and decompressed while it is read,
+ * output is compressed while it is written.
+ * <p>
+ * If splitting is enabled, the output is written into several documents named after the output file,
+ * e.g. <code>out-0001.xml</code>, each completed after a number of patients or bytes.
+ * The input is read twice then: Menge_Melder is read first, so each document is completed as soon as it is full.
+ * <p>
+ * If a patient shard is converted, which does not contain any patients, the output file is empty.
+ */
+class Converter {
+
+    static final String GZIP_EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String XML_EXTENSION = ".xml";
+
+    private final ObdsMapper mapper;
+    private final boolean pipeline;
+    private final Split split;
+
+    Converter(ObdsMapper mapper, boolean pipeline) {
+        this(mapper, pipeline, Split.NONE);
+    }
+
+    Converter(ObdsMapper mapper, boolean pipeline, Split split) {
+        if (pipeline && split.isEnabled()) {
+            throw new IllegalArgumentException("Split output is not supported by the pipeline");
+        }
+        this.mapper = mapper;
+        this.pipeline = pipeline;
+        this.split = split;
+    }
+
+    boolean isSplit() {
+        return split.isEnabled();
+    }
+
+    /**
+     * Converts the input file into the output file, compressed if the output file name ends with <code>.gz</code>.
+     * The output file is only written if the conversion has succeeded.
+     */
+    Result convert(Path input, Path output) throws Exception {
+        return convert(input, output, isGzip(output));
+    }
+
+    Result convert(Path input, Path output, boolean gzipOutput) throws Exception {
+        return convert(() -> Files.newInputStream(input), output, gzipOutput);
+    }
+
+    /**
+     * Converts the input into the output file. The input is opened twice if splitting is enabled.
+     */
+    Result convert(Input input, Path output, boolean gzipOutput) throws Exception {
+        if (split.isEnabled()) {
+            return convertSplit(input, output, gzipOutput);
+        }
+        try (var inputStream = input.open()) {
+            return convert(inputStream, output, gzipOutput);
+        }
+    }
+
+    private Result convert(InputStream inputStream, Path output, boolean gzipOutput) throws Exception {
+        var bomInputStream = bomInputStream(inputStream);
+        if (pipeline) {
+            var pipelineConverter = new PipelineConverter(mapper);
+            writeOutput(output, gzipOutput, outputStream -> pipelineConverter.convert(bomInputStream, outputStream));
+            return new Result(
+                    null, pipelineConverter.getStages(), pipelineConverter.getInvalidPatients(), List.of(output));
+        }
+
+        final var invalidPatients = new ArrayList<PatientValidationError>();
+
+        ADTGEKID inputObj;
+        boolean emptyShard;
+        try (var reader = mapper.adtGekidReader(bomInputStream)) {
+            inputObj = reader.readAll();
+            invalidPatients.addAll(reader.getInvalidPatients());
+            emptyShard = reader.isEmptyShard();
+        }
+        if (emptyShard) {
+            // There is no valid oBDS document without patients - an empty file marks the shard as converted
+            writeOutput(output, gzipOutput, outputStream -> {});
+            return new Result(null, List.of(), invalidPatients, List.of(output));
+        }
+
+        var mappingResult = mapper.mapWithResult(inputObj);
+        var mappedOutputStream = new ByteArrayOutputStream();
+        try (var writer = mapper.obdsWriter(mappedOutputStream)) {
+            writer.write(mappingResult.obds());
+            invalidPatients.addAll(writer.getInvalidPatients());
+        }
+
+        writeOutput(output, gzipOutput, mappedOutputStream::writeTo);
+        return new Result(mappingResult, List.of(), invalidPatients, List.of(output));
+    }
+
+    /**
+     * Streams the input into split output files. If the conversion fails, all files written so far are removed.
+     */
+    private Result convertSplit(Input input, Path output, boolean gzipOutput) throws Exception {
+        OBDS.MengeMelder mengeMelder;
+        try (var inputStream = input.open()) {
+            mengeMelder = mapper.readMappedMengeMelder(bomInputStream(inputStream));
+        }
+
+        final var outputs = new ArrayList<Path>();
+        final var invalidPatients = new ArrayList<PatientValidationError>();
+        try (var reader = mapper.adtGekidReader(bomInputStream(input.open()));
+             var writer = mapper.shardedObdsWriter(shard -> {
+                 var file = splitFile(output, shard);
+                 outputs.add(file);
+                 return compressed(Files.newOutputStream(file), gzipOutput);
+             }, split.maxPatients(), split.maxBytes(), mengeMelder)) {
+            mapper.writeMappedXml(reader, writer);
+            invalidPatients.addAll(reader.getInvalidPatients());
+            invalidPatients.addAll(writer.getInvalidPatients());
+        } catch (Exception e) {
+            for (var file : outputs) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException deleteException) {
+                    e.addSuppressed(deleteException);
+                }
+            }
+            throw e;
+        }
+        return new Result(null, List.of(), invalidPatients, outputs);
+    }
+
+    /**
+     * Writes the output into a hidden temporary file next to the output file, which is moved into place once it is
+     * complete. If writing fails, the temporary file is removed and an existing output file is left untouched.
+     */
+    private static void writeOutput(Path output, boolean gzipOutput, OutputWriter writer) throws Exception {
+        final var tempFile = output.resolveSibling(
+                String.format(".%s.%s.tmp", output.getFileName(), UUID.randomUUID()));
+        try {
+            try (var outputStream = compressed(
+                    Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                    gzipOutput)) {
+                writer.write(outputStream);
+            }
+            Files.move(tempFile, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the name of a split output file: the number is inserted before <code>.xml</code> or appended
+     */
+    static Path splitFile(Path output, int number) {
+        final var fileName = output.getFileName().toString();
+        final var suffix = String.format("-%04d", number);
+        final var index = fileName.lastIndexOf(XML_EXTENSION);
+        if (index < 0) {
+            return output.resolveSibling(fileName + suffix);
+        }
+        return output.resolveSibling(fileName.substring(0, index) + suffix + fileName.substring(index));
+    }
+
+    private static InputStream bomInputStream(InputStream inputStream) throws IOException {
+        return BOMInputStream.builder().setInputStream(decompressed(inputStream)).get();
+    }
+
+    static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Returns a stream decompressing given input stream if it starts with the gzip magic number
+     */
+    static InputStream decompressed(InputStream inputStream) throws IOException {
+        var bufferedInputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        bufferedInputStream.mark(2);
+        var first = bufferedInputStream.read();
+        var second = bufferedInputStream.read();
+        bufferedInputStream.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new GZIPInputStream(bufferedInputStream, BUFFER_SIZE);
+        }
+        return bufferedInputStream;
+    }
+
+    static OutputStream compressed(OutputStream outputStream, boolean gzip) throws IOException {
+        return gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+    }
+
+    /**
+     * Writes the content of an output file
+     */
+    @FunctionalInterface
+    private interface OutputWriter {
+        void write(OutputStream outputStream) throws Exception;
+    }
+
+    /**
+     * Opens the input of a conversion
+     */
+    @FunctionalInterface
+    interface Input {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Limits of each output document if the output is split - 0 means unlimited
+     *
+     * @param maxPatients The maximum number of patients of each document
+     * @param maxBytes The uncompressed size in bytes after which a document is completed
+     */
+    record Split(int maxPatients, long maxBytes) {
+        static final Split NONE = new Split(0, 0);
+
+        Split {
+            if (maxPatients < 0 || maxBytes < 0) {
+                throw new IllegalArgumentException("Split limits must not be negative");
+            }
+        }
+
+        boolean isEnabled() {
+            return maxPatients > 0 || maxBytes > 0;
+        }
+    }
+
+    /**
+     * Result of a single conversion - the mapping result is only available without pipeline and split output,
+     * stage statistics only with pipeline
+     */
+    record Result(
+            MappingResult mappingResult,
+            List<PipelineConverter.Stage> stages,
+            List<PatientValidationError> invalidPatients,
+            List<Path> outputs
+    ) {
+        Result {
+            invalidPatients = List.copyOf(invalidPatients);
+            outputs = List.copyOf(outputs);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts one ADT_GEKID document using separate threads for reading, mapping and writing.
+ * The stages are connected by bounded queues, so a fast stage blocks until the next stage catches up.
+ * Patients keep their input order.
+ */
+class PipelineConverter {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final ADTGEKID.MengePatient.Patient END_OF_INPUT = new ADTGEKID.MengePatient.Patient();
+    private static final MappedPatient END_OF_MAPPING = new MappedPatient(null, null);
+
+    private final ObdsMapper mapper;
+
+    private final Stage readStage = new Stage("Lesen");
+    private final Stage mapStage = new Stage("Mappen");
+    private final Stage writeStage = new Stage("Schreiben");
+
+    private final List<PatientValidationError> invalidPatients = new ArrayList<>();
+
+    PipelineConverter(ObdsMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    void convert(InputStream inputStream, OutputStream outputStream) throws Exception {
+        final var readQueue = new ArrayBlockingQueue<ADTGEKID.MengePatient.Patient>(QUEUE_CAPACITY);
+        final var writeQueue = new ArrayBlockingQueue<MappedPatient>(QUEUE_CAPACITY);
+
+        try (var reader = mapper.adtGekidReader(inputStream);
+             var writer = mapper.obdsWriter(outputStream)) {
+            final var executor = Executors.newFixedThreadPool(2);
+            try {
+                final var readTask = executor.submit(() -> {
+                    // The patient is read and bound in hasNext()
+                    var start = System.nanoTime();
+                    while (reader.hasNext()) {
+                        final var patient = reader.next();
+                        readStage.record(start);
+                        readQueue.put(patient);
+                        start = System.nanoTime();
+                    }
+                    readQueue.put(END_OF_INPUT);
+                    return null;
+                });
+
+                final var mapTask = executor.submit(() -> {
+                    for (var patient = readQueue.take(); patient != END_OF_INPUT; patient = readQueue.take()) {
+                        final var start = System.nanoTime();
+                        final var mappedPatient = new MappedPatient(
+                                mapper.mapPatient(patient).orElse(null),
+                                mapper.mapMeldedatum(patient).orElse(null)
+                        );
+                        mapStage.record(start);
+                        writeQueue.put(mappedPatient);
+                    }
+                    writeQueue.put(END_OF_MAPPING);
+                    return null;
+                });
+
+                write(writeQueue, writer, reader, List.of(readTask, mapTask));
+
+                readTask.get();
+                mapTask.get();
+
+                invalidPatients.addAll(reader.getInvalidPatients());
+                invalidPatients.addAll(writer.getInvalidPatients());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of all stages of the last conversion
+     */
+    List<Stage> getStages() {
+        return List.of(readStage, mapStage, writeStage);
+    }
+
+    /**
+     * Returns the patients skipped while reading and dropped while writing, because they are not valid
+     */
+    List<PatientValidationError> getInvalidPatients() {
+        return List.copyOf(invalidPatients);
+    }
+
+    private void write(
+            BlockingQueue<MappedPatient> writeQueue,
+            ObdsWriter writer,
+            AdtGekidReader reader,
+            List<Future<?>> upstreamTasks
+    ) throws Exception {
+        // The Meldedatum precedes Menge_Patient and is taken from the first patient, like ObdsMapper does.
+        // Only this patient is held back until the header has been written.
+        var mappedPatient = take(writeQueue, upstreamTasks);
+        if (mappedPatient == END_OF_MAPPING && reader.isEmptyShard()) {
+            // Nothing is written for a shard without patients
+            return;
+        }
+
+        var start = System.nanoTime();
+        var absender = mapper.mapAbsender(reader.getAbsender());
+        if (mappedPatient == END_OF_MAPPING) {
+            writer.writeHeader(absender, null);
+            writeStage.record(start, 0);
+        } else {
+            writer.writeHeader(absender, null != mappedPatient.meldedatum()
+                    ? mappedPatient.meldedatum()
+                    : ObdsMapper.fallbackMeldedatum());
+            writePatient(writer, mappedPatient);
+            writeStage.record(start);
+
+            for (mappedPatient = take(writeQueue, upstreamTasks);
+                 mappedPatient != END_OF_MAPPING;
+                 mappedPatient = take(writeQueue, upstreamTasks)) {
+                start = System.nanoTime();
+                writePatient(writer, mappedPatient);
+                writeStage.record(start);
+            }
+        }
+
+        start = System.nanoTime();
+        writer.writeFooter(mapper.mapMengeMelder(reader.getMengeMelder()));
+        writeStage.record(start, 0);
+    }
+
+    private static void writePatient(ObdsWriter writer, MappedPatient mappedPatient) throws Exception {
+        if (null != mappedPatient.patient()) {
+            writer.writePatient(mappedPatient.patient());
+        }
+    }
+
+    /**
+     * Takes the next item but fails fast if an upstream stage has failed and will not deliver any more items
+     */
+    private static <T> T take(BlockingQueue<T> queue, List<Future<?>> upstreamTasks) throws Exception {
+        while (true) {
+            final var item = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (null != item) {
+                return item;
+            }
+            for (var task : upstreamTasks) {
+                if (task.isDone()) {
+                    // Throws the cause of a failed stage
+                    task.get();
+                }
+            }
+        }
+    }
+
+    private record MappedPatient(OBDS.MengePatient.Patient patient, XMLGregorianCalendar meldedatum) {
+    }
+
+    /**
+     * Processing statistics of a single stage
+     */
+    static class Stage {
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private void record(long startNanos) {
+            record(startNanos, 1);
+        }
+
+        private void record(long startNanos, int count) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+            items.addAndGet(count);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getItems() {
+            return items.get();
+        }
+
+        long getBusyMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(busyNanos.get());
+        }
+
+        double getThroughput() {
+            final var busy = busyNanos.get();
+            return busy == 0 ? 0 : items.get() * 1e9 / busy;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.bzkf.obds2toobds3;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches an inbox directory and converts each new XML or gzip compressed XML file on a pool of workers sharing
+ * one mapper.
+ * <p>
+ * A file is converted once it has not been modified for a short time, so files still being copied into the inbox
+ * are not picked up. Outputs are written to a hidden temporary file and renamed when complete, inputs are moved into
+ * the done or failed directory afterwards. Downstream readers therefore never see partial files.
+ * <p>
+ * Before it is converted, a file is claimed by renaming it to a hidden file in the inbox, so a file dropped again under
+ * the same name is converted on its own. Files still claimed when the daemon was stopped, e.g. by a crash, are
+ * renamed back at startup and converted again. Existing outputs, done and failed files are never replaced: a counter
+ * is appended to the file name instead, e.g. <code>export-1.xml</code>.
+ * <p>
+ * Only one daemon must watch an inbox at a time.
+ */
+class WatchFolderDaemon {
+
+    private static final PathMatcher INPUT_FILES = FileSystems.getDefault().getPathMatcher("glob:*.{xml,xml.gz}");
+    private static final long SETTLE_MILLIS = 1000;
+    private static final long POLL_MILLIS = 200;
+    private static final String CLAIMED_EXTENSION = ".claimed";
+    private static final String XML_EXTENSION = ".xml";
+
+    private final Converter converter;
+    private final Path inbox;
+    private final Path outputDirectory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private final boolean gzipOutput;
+    private final Consumer<BatchConverter.FileResult> listener;
+    private final ExecutorService executor;
+
+    /**
+     * Files seen in the inbox but not yet submitted, by the time of their last event
+     */
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile WatchService watchService;
+
+    WatchFolderDaemon(
+            Converter converter,
+            int workers,
+            Path inbox,
+            Path outputDirectory,
+            Path doneDirectory,
+            Path failedDirectory,
+            boolean gzipOutput,
+            Consumer<BatchConverter.FileResult> listener
+    ) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        if (inbox.toAbsolutePath().normalize().equals(outputDirectory.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Output directory must not be the inbox");
+        }
+        this.converter = converter;
+        this.inbox = inbox;
+        this.outputDirectory = outputDirectory;
+        this.doneDirectory = doneDirectory;
+        this.failedDirectory = failedDirectory;
+        this.gzipOutput = gzipOutput;
+        this.listener = listener;
+        this.executor = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Watches the inbox until stopped. Files already in the inbox, including files left claimed by a previous run,
+     * are converted first.
+     */
+    void run() throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        Files.createDirectories(doneDirectory);
+        Files.createDirectories(failedDirectory);
+        releaseClaimed();
+
+        try (var watchService = inbox.getFileSystem().newWatchService()) {
+            this.watchService = watchService;
+            inbox.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            scanInbox();
+
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                }
+                if (null != key) {
+                    for (var event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            // Events have been lost - look at the inbox itself
+                            scanInbox();
+                        } else {
+                            addPending(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        throw new IOException("Inbox is no longer accessible: " + inbox);
+                    }
+                }
+                submitSettled();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * Stops watching the inbox and waits for running conversions to finish
+     */
+    void stop() {
+        final var watchService = this.watchService;
+        if (null == watchService) {
+            return;
+        }
+        try {
+            watchService.close();
+            stopped.await(1, TimeUnit.MINUTES);
+        } catch (IOException e) {
+            // Nothing left to do
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scanInbox() throws IOException {
+        try (Stream<Path> paths = Files.list(inbox)) {
+            paths.forEach(this::addPending);
+        }
+    }
+
+    private void addPending(Path file) {
+        if (INPUT_FILES.matches(file.getFileName())) {
+            pending.put(file, System.currentTimeMillis());
+        }
+    }
+
+    private void submitSettled() {
+        final var now = System.currentTimeMillis();
+        final var iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            if (now - entry.getValue() < SETTLE_MILLIS) {
+                continue;
+            }
+            iterator.remove();
+            final var file = entry.getKey();
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            final Path claimed;
+            try {
+                claimed = claim(file);
+            } catch (NoSuchFileException e) {
+                // Removed from the inbox meanwhile
+                continue;
+            } catch (IOException e) {
+                listener.accept(new BatchConverter.FileResult(file, outputFile(file), null, e, 0));
+                continue;
+            }
+            executor.submit(() -> listener.accept(convert(file, claimed)));
+        }
+    }
+
+    /**
+     * Renames the file to a unique hidden file in the inbox, so it is not changed or replaced while it is converted
+     */
+    private Path claim(Path file) throws IOException {
+        final var claimed = Files.createTempFile(inbox, "." + file.getFileName() + ".", CLAIMED_EXTENSION);
+        try {
+            return Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(claimed);
+            throw e;
+        }
+    }
+
+    /**
+     * Renames files claimed by a previous run that has not finished converting them back to their original names
+     */
+    private void releaseClaimed() throws IOException {
+        final List<Path> claimed;
+        try (Stream<Path> paths = Files.list(inbox)) {
+            claimed = paths.filter(WatchFolderDaemon::isClaimed).toList();
+        }
+        for (var file : claimed) {
+            moveToUniqueName(List.of(file), inbox.resolve(unclaimedFileName(file)), false);
+        }
+    }
+
+    private static boolean isClaimed(Path file) {
+        final var fileName = file.getFileName().toString();
+        return fileName.length() > CLAIMED_EXTENSION.length() + 1 && fileName.startsWith(".")
+                && fileName.endsWith(CLAIMED_EXTENSION) && Files.isRegularFile(file);
+    }
+
+    /**
+     * Returns the original file name of a claimed file named like <code>.export.xml.123.claimed</code>
+     */
+    private static String unclaimedFileName(Path claimed) {
+        final var fileName = claimed.getFileName().toString();
+        final var stem = fileName.substring(0, fileName.length() - CLAIMED_EXTENSION.length());
+        final var index = stem.lastIndexOf('.');
+        return index > 1 ? stem.substring(1, index) : stem.substring(1);
+    }
+
+    private Path outputFile(Path input) {
+        final var fileName = input.getFileName().toString();
+        return outputDirectory.resolve(
+                gzipOutput && !Converter.isGzip(input) ? fileName + Converter.GZIP_EXTENSION : fileName);
+    }
+
+    private BatchConverter.FileResult convert(Path input, Path claimed) {
+        final var start = System.nanoTime();
+        final var fileName = input.getFileName().toString();
+        var output = outputFile(input);
+
+        Exception error = null;
+        Converter.Result result = null;
+        Path tempOutput = null;
+        try {
+            tempOutput = Files.createTempFile(outputDirectory, "." + fileName + ".", ".tmp");
+            result = converter.convert(claimed, tempOutput, Converter.isGzip(output));
+            output = moveToUniqueName(result.outputs(), output, converter.isSplit());
+        } catch (Exception e) {
+            error = e;
+        }
+
+        try {
+            if (null != tempOutput) {
+                Files.deleteIfExists(tempOutput);
+            }
+            moveToUniqueName(List.of(claimed), (null == error ? doneDirectory : failedDirectory).resolve(fileName),
+                    false);
+        } catch (IOException e) {
+            if (null == error) {
+                error = e;
+            } else {
+                error.addSuppressed(e);
+            }
+        }
+
+        final var durationMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BatchConverter.FileResult(input, output, null == error ? result : null, error, durationMillis);
+    }
+
+    /**
+     * Moves the files to the target, or to the first name with a counter none of the files exist for.
+     * Split files are numbered like their temporary files. Names are chosen while holding a lock, so concurrent
+     * conversions never replace each other's files.
+     *
+     * @return the target the files have been moved to
+     */
+    private synchronized Path moveToUniqueName(List<Path> files, Path target, boolean split) throws IOException {
+        for (int counter = 0; ; counter++) {
+            final var candidate = 0 == counter ? target : numbered(target, counter);
+            final var targets = new ArrayList<Path>();
+            for (int i = 0; i < files.size(); i++) {
+                targets.add(split ? Converter.splitFile(candidate, i + 1) : candidate);
+            }
+            if (targets.stream().noneMatch(Files::exists)) {
+                for (int i = 0; i < files.size(); i++) {
+                    Files.move(files.get(i), targets.get(i), StandardCopyOption.ATOMIC_MOVE);
+                }
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Returns the file name with a counter inserted before <code>.xml</code>, or appended
+     */
+    private static Path numbered(Path file, int counter) {
+        final var fileName = file.getFileName().toString();
+        final var index = fileName.lastIndexOf(XML_EXTENSION);
+        if (index < 0) {
+            return file.resolveSibling(fileName + "-" + counter);
+        }
+        return file.resolveSibling(fileName.substring(0, index) + "-" + counter + fileName.substring(index));
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.bzkf.obds2toobds3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatchFolderDaemonTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldConvertFileDroppedAgainWhileFirstIsConverted() throws Exception {
+        final var inbox = Files.createDirectories(directory.resolve("inbox"));
+        final var output = directory.resolve("output");
+        final var done = directory.resolve("done");
+        final var firstStarted = new CountDownLatch(1);
+        final var releaseFirst = new CountDownLatch(1);
+        final var results = new LinkedBlockingQueue<BatchConverter.FileResult>();
+        final var daemon = new WatchFolderDaemon(
+                new BlockingConverter(firstStarted, releaseFirst), 2,
+                inbox, output, done, directory.resolve("failed"), false, results::add);
+        final var thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        try {
+            Files.writeString(inbox.resolve("export.xml"), "first");
+            assertThat(firstStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Dropped again under the same name while the first file is still being converted
+            Files.writeString(inbox.resolve("export.xml"), "second");
+            var second = poll(results);
+            releaseFirst.countDown();
+            var first = poll(results);
+
+            assertThat(List.of(first, second)).allMatch(BatchConverter.FileResult::isSuccess);
+        } finally {
+            releaseFirst.countDown();
+            daemon.stop();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        // Nothing has been replaced and each file has been moved into done once
+        assertThat(contents(output)).containsExactlyInAnyOrder("first", "second");
+        assertThat(contents(done)).containsExactlyInAnyOrder("first", "second");
+        assertThat(fileNames(output)).containsExactlyInAnyOrder("export.xml", "export-1.xml");
+        assertThat(fileNames(inbox)).isEmpty();
+    }
+
+    @Test
+    void shouldConvertFileLeftClaimedByPreviousRun() throws Exception {
+        final var inbox = Files.createDirectories(directory.resolve("inbox"));
+        final var output = directory.resolve("output");
+        final var done = directory.resolve("done");
+        Files.writeString(inbox.resolve(".export.xml.4711.claimed"), "claimed");
+        final var results = new LinkedBlockingQueue<BatchConverter.FileResult>();
+        final var daemon = new WatchFolderDaemon(
+                new BlockingConverter(new CountDownLatch(1), new CountDownLatch(0)), 1,
+                inbox, output, done, directory.resolve("failed"), false, results::add);
+        final var thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        try {
+            var result = poll(results);
+
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.input().getFileName()).hasToString("export.xml");
+        } finally {
+            daemon.stop();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertThat(contents(output)).containsExactly("claimed");
+        assertThat(fileNames(done)).containsExactly("export.xml");
+        assertThat(fileNames(inbox)).isEmpty();
+    }
+
+    private static BatchConverter.FileResult poll(BlockingQueue<BatchConverter.FileResult> results)
+            throws InterruptedException {
+        var result = results.poll(10, TimeUnit.SECONDS);
+        assertThat(result).isNotNull();
+        return result;
+    }
+
+    private static List<String> contents(Path directory) throws IOException {
+        final var contents = new ArrayList<String>();
+        for (var fileName : fileNames(directory)) {
+            contents.add(Files.readString(directory.resolve(fileName)));
+        }
+        return contents;
+    }
+
+    private static List<String> fileNames(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+
+    /**
+     * Copies the input into the output, blocking the first conversion until it is released
+     */
+    private static class BlockingConverter extends Converter {
+        private final AtomicInteger conversions = new AtomicInteger();
+        private final CountDownLatch firstStarted;
+        private final CountDownLatch releaseFirst;
+
+        private BlockingConverter(CountDownLatch firstStarted, CountDownLatch releaseFirst) {
+            super(ObdsMapper.builder().build(), false);
+            this.firstStarted = firstStarted;
+            this.releaseFirst = releaseFirst;
+        }
+
+        @Override
+        Result convert(Path input, Path output, boolean gzipOutput) throws Exception {
+            if (conversions.incrementAndGet() == 1) {
+                firstStarted.countDown();
+                releaseFirst.await(10, TimeUnit.SECONDS);
+            }
+            Files.writeString(output, Files.readString(input, StandardCharsets.UTF_8));
+            return new Result(null, List.of(), List.of(), List.of(output));
+        }
+    }
+}
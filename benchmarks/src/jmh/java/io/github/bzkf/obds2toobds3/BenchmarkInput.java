@@ -0,0 +1,74 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input documents of the benchmarks: test data files of the library or synthetic documents.
+ *
+ * <p>A synthetic document is given as <code>synthetic:N</code> and contains N clean patients
+ * generated by {@link AdtGekidGenerator} using a fixed seed, so the document and its mapping result
+ * are valid against the schema and equal in each run.
+ */
+final class BenchmarkInput {
+
+  static final String SYNTHETIC_PREFIX = "synthetic:";
+
+  private static final long SYNTHETIC_SEED = 1;
+
+  private BenchmarkInput() {}
+
+  /**
+   * Returns the ADT_GEKID document of given input
+   *
+   * @param input The name of a test data file or <code>synthetic:N</code>
+   * @return the document
+   * @throws IOException if a test data file cannot be read
+   */
+  static String xmlString(String input) throws IOException {
+    if (input.startsWith(SYNTHETIC_PREFIX)) {
+      return synthetic(Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length())));
+    }
+    return readResource(input);
+  }
+
+  private static String synthetic(int patients) {
+    return AdtGekidGenerator.builder()
+        .seed(SYNTHETIC_SEED)
+        .patients(patients)
+        .build()
+        .writeString();
+  }
+
+  private static String readResource(String filename) throws IOException {
+    try (var inputStream = BenchmarkInput.class.getClassLoader().getResourceAsStream(filename)) {
+      if (null == inputStream) {
+        throw new IOException("Cannot find " + filename);
+      }
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
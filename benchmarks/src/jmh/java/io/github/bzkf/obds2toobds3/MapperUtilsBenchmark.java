@@ -0,0 +1,86 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares mapping oBDS v2 date strings using the hand-written parser with regular expression
+ * matching, a <code>GregorianCalendar</code> and a new <code>DatatypeFactory</code> per date.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperUtilsBenchmark {
+
+  @Param({"11.06.2024", "00.06.2024", "00.00.2024"})
+  private String date;
+
+  @Benchmark
+  public XMLGregorianCalendar mapDateString() {
+    return MapperUtils.mapDateString(date).orElseThrow().getValue();
+  }
+
+  @Benchmark
+  public XMLGregorianCalendar mapDateStringUsingRegex() throws Exception {
+    // Date mapping as done before dates have been parsed by hand
+    var matcher = Pattern.compile(MapperUtils.OBDS2_DATE_REGEX).matcher(date);
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(date);
+    }
+    var day = Integer.parseInt(matcher.group("day"));
+    var month = Integer.parseInt(matcher.group("month"));
+    var year = Integer.parseInt(matcher.group("year"));
+
+    var calendar = new GregorianCalendar();
+    calendar.clear();
+    calendar.set(Calendar.YEAR, year);
+    if (month > 0) {
+      calendar.set(Calendar.MONTH, month - 1);
+    }
+    if (day > 0) {
+      calendar.set(Calendar.DAY_OF_MONTH, day);
+    }
+    return DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures each step of converting a document - validating, reading, mapping and writing - and the
+ * whole conversion, using test data files and a synthetic document of 1000 patients.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingPipelineBenchmark {
+
+  @Param({"testdaten/obdsv2_1.xml", "testdaten/obdsv2_op_1.xml", "synthetic:1000"})
+  private String input;
+
+  private String xmlString;
+  private ADTGEKID adtgekid;
+  private OBDS obds;
+  private ObdsMapper mapper;
+  private PatientMapper patientMapper;
+
+  @Setup
+  public void setUp() throws IOException {
+    xmlString = BenchmarkInput.xmlString(input);
+    mapper = ObdsMapper.builder().build();
+    patientMapper = new PatientMapper(false, false, false);
+    adtgekid = mapper.readValue(xmlString, ADTGEKID.class);
+    obds = mapper.map(adtgekid);
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return SchemaValidator.isValid(xmlString, SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3);
+  }
+
+  @Benchmark
+  public ADTGEKID readValue() throws IOException {
+    return mapper.readValue(xmlString, ADTGEKID.class);
+  }
+
+  @Benchmark
+  public OBDS map() {
+    return mapper.map(adtgekid);
+  }
+
+  @Benchmark
+  public void mapPatients(Blackhole blackhole) {
+    for (var patient : adtgekid.getMengePatient().getPatient()) {
+      blackhole.consume(patientMapper.map(patient));
+    }
+  }
+
+  @Benchmark
+  public String writeXmlString() throws IOException {
+    return mapper.writeXmlString(obds);
+  }
+
+  @Benchmark
+  public String convert() throws IOException {
+    return mapper.writeMappedXmlString(mapper.readValue(xmlString, ADTGEKID.class));
+  }
+}
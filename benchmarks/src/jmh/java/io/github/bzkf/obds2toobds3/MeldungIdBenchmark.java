@@ -0,0 +1,78 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares generating a missing Meldung_ID from the canonical content with generating it from the
+ * XML serialization of the Meldung.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeldungIdBenchmark {
+
+  @Param({"testdaten/obdsv2_missing-meldung-id.xml", "testdaten/obdsv2_op_1.xml"})
+  private String filename;
+
+  private ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (var inputStream = getClass().getClassLoader().getResourceAsStream(filename)) {
+      var xmlString = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+      var adtGekid = ObdsMapper.builder().build().readValue(xmlString, ADTGEKID.class);
+      meldung =
+          adtGekid.getMengePatient().getPatient().get(0).getMengeMeldung().getMeldung().get(0);
+    }
+  }
+
+  @Benchmark
+  public String canonicalContent() {
+    return ContentHash.meldungId(meldung);
+  }
+
+  @Benchmark
+  public String xmlSerialization() {
+    return ContentHash.legacyMeldungId(meldung);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how mapping the patients of a document scales with the number of threads. Use <code>
+ * -p parallelism=1,2,...,N</code> to measure up to N cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelMappingBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  private int parallelism;
+
+  @Param({"1000"})
+  private int patients;
+
+  private ADTGEKID adtgekid;
+  private ForkJoinPool pool;
+  private ObdsMapper mapper;
+
+  @Setup
+  public void setUp() throws IOException {
+    adtgekid =
+        ObdsMapper.builder()
+            .disableSchemaValidation()
+            .build()
+            .readValue(
+                BenchmarkInput.xmlString(BenchmarkInput.SYNTHETIC_PREFIX + patients),
+                ADTGEKID.class);
+
+    pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    mapper = ObdsMapper.builder().executor(pool).build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (null != pool) {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  public OBDS map() {
+    return mapper.map(adtgekid);
+  }
+}
@@ -0,0 +1,453 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Pull based reader for ADT_GEKID files binding one patient at a time.
+ *
+ * <p>Only the current patient is held in memory, so heap usage does not depend on the size of the
+ * input. As defined in the ADT_GEKID schema, <code>Menge_Melder</code> follows <code>
+ * Menge_Patient</code> and is therefore only available after all patients have been read.
+ *
+ * <p>If enabled, the document is validated against the ADT_GEKID schema while it is read. A {@link
+ * SchemaValidatorException} is thrown as soon as invalid content is read. If invalid patients are
+ * ignored, invalid patients are skipped and reported by {@link #getInvalidPatients()} instead.
+ * Invalid content outside of patients still fails. Identity constraints, such as unique IDs, still
+ * take skipped patients into account.
+ *
+ * <p>If a patient filter is given, e.g. by a {@link PatientShard}, only patients accepted by the
+ * filter are returned. The Patient_ID is read from the start of <code>Patienten_Stammdaten</code>,
+ * all other patients are skipped without binding them. Skipped patients are still validated, but
+ * their violations are not reported, as they are reported by the reader of their shard.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @since 0.2.0
+ */
+public class AdtGekidReader implements Iterator<ADTGEKID.MengePatient.Patient>, Closeable {
+
+  private static final String ROOT_ELEMENT = "ADT_GEKID";
+  private static final String ABSENDER_ELEMENT = "Absender";
+  private static final String MENGE_PATIENT_ELEMENT = "Menge_Patient";
+  private static final String PATIENT_ELEMENT = "Patient";
+  private static final String PATIENTEN_STAMMDATEN_ELEMENT = "Patienten_Stammdaten";
+  private static final String MENGE_MELDUNG_ELEMENT = "Menge_Meldung";
+  private static final String ANMERKUNG_ELEMENT = "Anmerkung";
+  private static final String PATIENT_ID_ATTRIBUTE = "Patient_ID";
+  private static final String MENGE_MELDER_ELEMENT = "Menge_Melder";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdtGekidReader.class);
+
+  private final Closeable source;
+  private final XMLStreamReader streamReader;
+  private final ValidatingStreamReader validatingReader;
+  private final ValidationErrorCollector errorCollector;
+  private final Predicate<String> patientFilter;
+  private final List<PatientValidationError> invalidPatients = new ArrayList<>();
+
+  private final String schemaVersion;
+  private ADTGEKID.Absender absender;
+  private ADTGEKID.MengeMelder mengeMelder;
+
+  private ADTGEKID.MengePatient.Patient nextPatient;
+  private boolean patientsExhausted;
+  private int patientCount;
+
+  AdtGekidReader(
+      XMLStreamReader xmlStreamReader,
+      Closeable source,
+      boolean validate,
+      boolean ignoreInvalidPatients)
+      throws IOException {
+    this(xmlStreamReader, source, validate, ignoreInvalidPatients, null);
+  }
+
+  AdtGekidReader(
+      XMLStreamReader xmlStreamReader,
+      Closeable source,
+      boolean validate,
+      boolean ignoreInvalidPatients,
+      Predicate<String> patientFilter)
+      throws IOException {
+    this.source = source;
+    this.patientFilter = patientFilter;
+    this.errorCollector = validate && ignoreInvalidPatients ? new ValidationErrorCollector() : null;
+    this.validatingReader =
+        validate
+            ? new ValidatingStreamReader(
+                xmlStreamReader, SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3, errorCollector)
+            : null;
+    this.streamReader = validate ? validatingReader : xmlStreamReader;
+
+    try {
+      if (streamReader.nextTag() != XMLStreamConstants.START_ELEMENT
+          || !ROOT_ELEMENT.equals(streamReader.getLocalName())) {
+        throw new IOException("Input is not an ADT_GEKID document");
+      }
+      this.schemaVersion = streamReader.getAttributeValue(null, "Schema_Version");
+
+      // Absender is optional and precedes Menge_Patient
+      nextStartElement();
+      if (ABSENDER_ELEMENT.equals(streamReader.getLocalName())) {
+        this.absender = ObdsMapper.XML_MAPPER.readValue(streamReader, ADTGEKID.Absender.class);
+        nextStartElement();
+      }
+      if (!MENGE_PATIENT_ELEMENT.equals(streamReader.getLocalName())) {
+        throw unexpectedElement();
+      }
+      throwDocumentErrors();
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read ADT_GEKID document", e);
+    } catch (IOException e) {
+      SchemaValidatorException.rethrowIfCause(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the schema version given in the root element
+   *
+   * @return the schema version
+   */
+  public String getSchemaVersion() {
+    return schemaVersion;
+  }
+
+  /**
+   * Returns the Absender of the ADT_GEKID document
+   *
+   * @return the Absender or <code>null</code> if there is no Absender
+   */
+  public ADTGEKID.Absender getAbsender() {
+    return absender;
+  }
+
+  /**
+   * Returns the Menge_Melder of the ADT_GEKID document
+   *
+   * @return the Menge_Melder or <code>null</code> if there is no Menge_Melder
+   * @throws IllegalStateException if there are patients left to be read
+   */
+  public ADTGEKID.MengeMelder getMengeMelder() {
+    if (!patientsExhausted) {
+      throw new IllegalStateException(
+          "Menge_Melder is available after all patients have been read");
+    }
+    return mengeMelder;
+  }
+
+  /**
+   * Returns the patients skipped so far, because they are not valid. Patients are only skipped if
+   * invalid patients are ignored.
+   *
+   * @return the skipped patients
+   * @since 0.2.0
+   */
+  public List<PatientValidationError> getInvalidPatients() {
+    return List.copyOf(invalidPatients);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (null == nextPatient && !patientsExhausted) {
+      try {
+        nextPatient = readNextPatient();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return null != nextPatient;
+  }
+
+  @Override
+  public ADTGEKID.MengePatient.Patient next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    var result = nextPatient;
+    nextPatient = null;
+    patientCount++;
+    return result;
+  }
+
+  /**
+   * Returns whether patients are filtered, e.g. by a {@link PatientShard}, and none of them has
+   * been accepted. As an oBDS document requires at least one patient, nothing is written for an
+   * empty shard.
+   *
+   * @return <code>true</code> if no patient has been accepted by the filter
+   * @throws IllegalStateException if there are patients left to be read
+   * @since 0.2.0
+   */
+  public boolean isEmptyShard() {
+    if (!patientsExhausted) {
+      throw new IllegalStateException("Patients have not been read yet");
+    }
+    return null != patientFilter && 0 == patientCount;
+  }
+
+  /**
+   * Reads the remaining patients and returns the whole document
+   *
+   * @return the ADT_GEKID document containing the remaining patients
+   * @throws IOException if the document cannot be read
+   * @since 0.2.0
+   */
+  public ADTGEKID readAll() throws IOException {
+    var result = new ADTGEKID();
+    result.setSchemaVersion(schemaVersion);
+    result.setAbsender(absender);
+    var mengePatient = new ADTGEKID.MengePatient();
+    try {
+      forEachRemaining(mengePatient.getPatient()::add);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    result.setMengePatient(mengePatient);
+    result.setMengeMelder(getMengeMelder());
+    return result;
+  }
+
+  /**
+   * Returns a sequential stream of the remaining patients
+   *
+   * @return the stream of patients
+   */
+  public Stream<ADTGEKID.MengePatient.Patient> stream() {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      streamReader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      if (null != source) {
+        source.close();
+      }
+    }
+  }
+
+  private ADTGEKID.MengePatient.Patient readNextPatient() throws IOException {
+    try {
+      while (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        if (!PATIENT_ELEMENT.equals(streamReader.getLocalName())) {
+          throw unexpectedElement();
+        }
+        var patientDepth = null == validatingReader ? 0 : validatingReader.getDepth();
+        PatientBinder binder =
+            () ->
+                ObdsMapper.XML_MAPPER.readValue(streamReader, ADTGEKID.MengePatient.Patient.class);
+        if (null != patientFilter) {
+          nextStartElement();
+          if (!PATIENTEN_STAMMDATEN_ELEMENT.equals(streamReader.getLocalName())) {
+            throw unexpectedElement();
+          }
+          if (!patientFilter.test(streamReader.getAttributeValue(null, PATIENT_ID_ATTRIBUTE))) {
+            skipPatient();
+            continue;
+          }
+          binder = this::readPatientContent;
+        }
+        if (null == errorCollector) {
+          return binder.bind();
+        }
+        var patient = readValidPatient(binder, patientDepth);
+        if (null != patient) {
+          return patient;
+        }
+      }
+
+      // End of Menge_Patient - Menge_Melder is optional and follows Menge_Patient
+      patientsExhausted = true;
+      if (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        if (!MENGE_MELDER_ELEMENT.equals(streamReader.getLocalName())) {
+          throw unexpectedElement();
+        }
+        mengeMelder = ObdsMapper.XML_MAPPER.readValue(streamReader, ADTGEKID.MengeMelder.class);
+        if (streamReader.nextTag() != XMLStreamConstants.END_ELEMENT) {
+          throw unexpectedElement();
+        }
+      }
+
+      // Read the remaining document, the end of the document is validated as well
+      while (streamReader.hasNext()) {
+        streamReader.next();
+      }
+      throwDocumentErrors();
+      return null;
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read ADT_GEKID document", e);
+    } catch (IOException e) {
+      SchemaValidatorException.rethrowIfCause(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the current patient and returns it, if it is valid. Invalid patients are skipped and
+   * reported.
+   */
+  private ADTGEKID.MengePatient.Patient readValidPatient(PatientBinder binder, int patientDepth)
+      throws IOException, XMLStreamException {
+    ADTGEKID.MengePatient.Patient patient = null;
+    try {
+      patient = binder.bind();
+    } catch (IOException e) {
+      // Invalid content might not be bindable - skip the remaining patient
+      var errors = errorCollector.drain();
+      if (errors.isEmpty()) {
+        throw e;
+      }
+      while (validatingReader.getDepth() >= patientDepth) {
+        streamReader.next();
+      }
+      reportInvalidPatient(null, errors.getFirst());
+      return null;
+    }
+
+    var errors = errorCollector.drain();
+    if (errors.isEmpty()) {
+      return patient;
+    }
+    var patientId =
+        null == patient.getPatientenStammdaten()
+            ? null
+            : patient.getPatientenStammdaten().getPatientID();
+    reportInvalidPatient(patientId, errors.getFirst());
+    return null;
+  }
+
+  /**
+   * Binds the children of the current patient one after the other, starting at
+   * Patienten_Stammdaten, which has already been read to select the patient.
+   */
+  private ADTGEKID.MengePatient.Patient readPatientContent() throws IOException {
+    var patient = new ADTGEKID.MengePatient.Patient();
+    patient.setPatientenStammdaten(
+        ObdsMapper.XML_MAPPER.readValue(
+            streamReader, ADTGEKID.MengePatient.Patient.PatientenStammdaten.class));
+    try {
+      while (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        switch (streamReader.getLocalName()) {
+          case MENGE_MELDUNG_ELEMENT ->
+              patient.setMengeMeldung(
+                  ObdsMapper.XML_MAPPER.readValue(
+                      streamReader, ADTGEKID.MengePatient.Patient.MengeMeldung.class));
+          case ANMERKUNG_ELEMENT -> patient.setAnmerkung(streamReader.getElementText());
+          default -> throw unexpectedElement();
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read ADT_GEKID document", e);
+    }
+    return patient;
+  }
+
+  /** Skips the remaining patient, starting at its first child */
+  private void skipPatient() throws XMLStreamException {
+    var depth = 2;
+    while (depth > 0) {
+      var event = streamReader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    if (null != errorCollector) {
+      // Violations are reported by the reader of the shard the patient is assigned to
+      errorCollector.drain();
+    }
+  }
+
+  private void reportInvalidPatient(String patientId, SAXParseException error) {
+    LOG.warn(
+        "Ignoring invalid patient '{}' at line {}, column {}: {}",
+        patientId,
+        error.getLineNumber(),
+        error.getColumnNumber(),
+        error.getMessage());
+    invalidPatients.add(
+        new PatientValidationError(
+            patientId,
+            SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3,
+            error.getLineNumber(),
+            error.getColumnNumber(),
+            error.getMessage()));
+  }
+
+  private void throwDocumentErrors() {
+    // Errors outside of patients cannot be skipped
+    if (null != errorCollector) {
+      errorCollector.throwIfAny();
+    }
+  }
+
+  private void nextStartElement() throws XMLStreamException, IOException {
+    if (streamReader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+      throw unexpectedElement();
+    }
+  }
+
+  @FunctionalInterface
+  private interface PatientBinder {
+    ADTGEKID.MengePatient.Patient bind() throws IOException;
+  }
+
+  private IOException unexpectedElement() {
+    var location = streamReader.getLocation();
+    return new IOException(
+        String.format(
+            "Unexpected element '%s' at line %d, column %d",
+            streamReader.hasName() ? streamReader.getLocalName() : "",
+            location.getLineNumber(),
+            location.getColumnNumber()));
+  }
+}
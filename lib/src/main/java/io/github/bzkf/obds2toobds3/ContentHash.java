@@ -0,0 +1,275 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlEnumValue;
+import jakarta.xml.bind.annotation.XmlType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import javax.xml.datatype.XMLGregorianCalendar;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Content hash of ADT_GEKID (oBDS v2) elements, used to generate missing IDs.
+ *
+ * <p>The hash is calculated from a canonical form of the element, which is fed into the digest
+ * while the element is visited, without serializing it into XML first. The canonical form does not
+ * depend on the XML mapper, the order of fields in the generated classes or the version of this
+ * library:
+ *
+ * <ul>
+ *   <li>an element is written as <code>{</code>, its children ordered by their XML name and <code>}
+ *       </code>
+ *   <li>a child is written as its XML name and its value - children without value and empty lists
+ *       are omitted
+ *   <li>a list is written as <code>[</code>, its items in document order and <code>]</code>
+ *   <li>a simple value is written as <code>"</code> and its XML lexical value
+ * </ul>
+ *
+ * <p>Names and simple values are UTF-8 encoded and terminated by a zero byte, which cannot be part
+ * of an XML document.
+ */
+final class ContentHash {
+
+  // Meldung_ID can be 50 chars max
+  private static final int MELDUNG_ID_LENGTH = 49;
+  private static final int TUMOR_ID_LENGTH = 16;
+
+  private static final ClassValue<ElementField[]> ELEMENT_FIELDS =
+      new ClassValue<>() {
+        @Override
+        protected ElementField[] computeValue(Class<?> type) {
+          return elementFields(type);
+        }
+      };
+
+  private static final ClassValue<String[]> ENUM_VALUES =
+      new ClassValue<>() {
+        @Override
+        protected String[] computeValue(Class<?> type) {
+          return enumValues(type);
+        }
+      };
+
+  private final MessageDigest digest;
+  private final byte[] buffer = new byte[256];
+  private int position;
+
+  private ContentHash(MessageDigest digest) {
+    this.digest = digest;
+  }
+
+  /**
+   * Generates a Meldung_ID from the canonical content of the Meldung
+   *
+   * @param meldung The Meldung
+   * @return the first 49 hex digits of the SHA-256 hash
+   */
+  static String meldungId(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung) {
+    var contentHash = new ContentHash(DigestUtils.getSha256Digest());
+    contentHash.visit(meldung);
+    return contentHash.hex(MELDUNG_ID_LENGTH);
+  }
+
+  /**
+   * Generates a Meldung_ID from the XML serialization of the Meldung, as done up to version 0.1.x.
+   * The result depends on the XML mapper.
+   *
+   * @param meldung The Meldung
+   * @return the first 49 hex digits of the SHA-256 hash
+   */
+  static String legacyMeldungId(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung) {
+    try {
+      var meldungXml = ObdsMapper.XML_MAPPER.writeValueAsString(meldung);
+      return DigestUtils.sha256Hex(meldungXml).substring(0, MELDUNG_ID_LENGTH);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Generates a Tumor_ID. The result is the same as of the SHA-1 hash of <code>
+   * "{diagnosedatum}_{icdCode}_{meldungId}"</code>, so generated IDs do not change.
+   *
+   * @param diagnosedatum The Diagnosedatum of the Tumorzuordnung
+   * @param icdCode The Primaertumor_ICD_Code of the Tumorzuordnung
+   * @param meldungId The Meldung_ID
+   * @return the Tumor_ID prefixed by "TID_"
+   */
+  static String tumorId(String diagnosedatum, String icdCode, String meldungId) {
+    var contentHash = new ContentHash(DigestUtils.getSha1Digest());
+    contentHash.string(diagnosedatum);
+    contentHash.write('_');
+    contentHash.string(icdCode);
+    contentHash.write('_');
+    contentHash.string(meldungId);
+    return "TID_" + contentHash.hex(TUMOR_ID_LENGTH);
+  }
+
+  private void visit(Object value) {
+    switch (value) {
+      case List<?> list -> {
+        write('[');
+        for (var item : list) {
+          visit(item);
+        }
+        write(']');
+      }
+      case String string -> simpleValue(string);
+      case Enum<?> constant ->
+          simpleValue(ENUM_VALUES.get(constant.getDeclaringClass())[constant.ordinal()]);
+      case XMLGregorianCalendar calendar -> simpleValue(calendar.toXMLFormat());
+      case BigDecimal decimal -> simpleValue(decimal.toPlainString());
+      case Number number -> simpleValue(number.toString());
+      case Boolean bool -> simpleValue(bool.toString());
+      default -> element(value);
+    }
+  }
+
+  private void element(Object value) {
+    write('{');
+    for (var field : ELEMENT_FIELDS.get(value.getClass())) {
+      var child = field.get(value);
+      if (null == child || (child instanceof List<?> list && list.isEmpty())) {
+        continue;
+      }
+      string(field.name());
+      write(0);
+      visit(child);
+    }
+    write('}');
+  }
+
+  private void simpleValue(String value) {
+    write('"');
+    string(value);
+    write(0);
+  }
+
+  /** Writes the UTF-8 encoded string without allocating a byte array */
+  private void string(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        write(c);
+      } else if (c < 0x800) {
+        write(0xC0 | (c >> 6));
+        write(0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        write(0xF0 | (codePoint >> 18));
+        write(0x80 | ((codePoint >> 12) & 0x3F));
+        write(0x80 | ((codePoint >> 6) & 0x3F));
+        write(0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced like String.getBytes() does
+        write('?');
+      } else {
+        write(0xE0 | (c >> 12));
+        write(0x80 | ((c >> 6) & 0x3F));
+        write(0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private void write(int b) {
+    if (position == buffer.length) {
+      digest.update(buffer, 0, position);
+      position = 0;
+    }
+    buffer[position++] = (byte) b;
+  }
+
+  private String hex(int length) {
+    digest.update(buffer, 0, position);
+    position = 0;
+    return Hex.encodeHexString(digest.digest()).substring(0, length);
+  }
+
+  private static ElementField[] elementFields(Class<?> type) {
+    if (!type.isAnnotationPresent(XmlType.class)) {
+      throw new IllegalArgumentException(
+          String.format("Cannot hash content of type '%s'", type.getName()));
+    }
+    return Arrays.stream(type.getDeclaredFields())
+        .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+        .map(ElementField::of)
+        .sorted(Comparator.comparing(ElementField::name))
+        .toArray(ElementField[]::new);
+  }
+
+  private static String[] enumValues(Class<?> type) {
+    var constants = type.getEnumConstants();
+    var values = new String[constants.length];
+    for (var constant : constants) {
+      var name = ((Enum<?>) constant).name();
+      try {
+        var enumValue = type.getField(name).getAnnotation(XmlEnumValue.class);
+        values[((Enum<?>) constant).ordinal()] = null == enumValue ? name : enumValue.value();
+      } catch (NoSuchFieldException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return values;
+  }
+
+  /** A field of a generated class and the name of the XML element or attribute it is bound to */
+  private record ElementField(Field field, String name) {
+
+    private static final String DEFAULT_NAME = "##default";
+
+    static ElementField of(Field field) {
+      field.setAccessible(true);
+      var name = field.getName();
+      var element = field.getAnnotation(XmlElement.class);
+      var attribute = field.getAnnotation(XmlAttribute.class);
+      if (null != element && !DEFAULT_NAME.equals(element.name())) {
+        name = element.name();
+      } else if (null != attribute && !DEFAULT_NAME.equals(attribute.name())) {
+        name = attribute.name();
+      }
+      return new ElementField(field, name);
+    }
+
+    Object get(Object target) {
+      try {
+        return field.get(target);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
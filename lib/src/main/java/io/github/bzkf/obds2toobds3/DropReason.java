@@ -0,0 +1,44 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+/**
+ * Reason for dropping Meldungen or patients while mapping. Meldungen and patients are only dropped
+ * if unmappable items are ignored.
+ *
+ * @since 0.2.0
+ */
+public enum DropReason {
+  /** An ADT_GEKID Meldung without Tumorzuordnung has no complete Diagnose to derive it from */
+  INCOMPLETE_DIAGNOSE,
+  /** An oBDS Meldung has no Tumorzuordnung */
+  MISSING_TUMORZUORDNUNG,
+  /** The Tumorzuordnung of an oBDS Meldung has no Tumor_ID */
+  MISSING_TUMOR_ID,
+  /** The patient cannot be mapped, all of its ADT_GEKID Meldungen are dropped */
+  UNMAPPABLE_PATIENT,
+  /** The patient has no mappable Meldung left - no Meldungen are counted for this reason */
+  NO_MAPPABLE_MELDUNG
+}
@@ -28,11 +28,12 @@ import de.basisdatensatz.obds.v3.DatumTagOderMonatGenauTyp;
 import de.basisdatensatz.obds.v3.DatumTagOderMonatGenauTypSchaetzOptional;
 import de.basisdatensatz.obds.v3.DatumTagOderMonatOderJahrOderNichtGenauTyp;
 import java.time.LocalDate;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -46,6 +47,17 @@ class MapperUtils {
   public static final String OBDS2_DATE_REGEX =
       "(?<day>([0-2]\\d)|(3[01]))\\.(?<month>(0\\d)|(1[0-2]))\\.(?<year>(18|19|20)\\d\\d)";
 
+  // Implementations of DatatypeFactory are stateless - no need for a service lookup per date
+  static final DatatypeFactory DATATYPE_FACTORY;
+
+  static {
+    try {
+      DATATYPE_FACTORY = DatatypeFactory.newInstance();
+    } catch (DatatypeConfigurationException e) {
+      throw new IllegalStateException("Cannot create DatatypeFactory", e);
+    }
+  }
+
   private MapperUtils() {}
 
   /**
@@ -63,56 +75,39 @@ class MapperUtils {
 
     var result = new DatumTagOderMonatOderJahrOderNichtGenauTyp();
 
-    var calendar = new GregorianCalendar();
-    calendar.clear();
-
     if ("00.00.0000".equals(date)) {
-      calendar.set(Calendar.YEAR, 1900);
       result.setDatumsgenauigkeit(
           DatumTagOderMonatOderJahrOderNichtGenauTyp
               .DatumsgenauigkeitTagOderMonatOderJahrOderNichtGenau.V);
-
-      try {
-        result.setValue(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
-        return Optional.of(result);
-      } catch (DatatypeConfigurationException e) {
-        return Optional.empty();
-      }
+      result.setValue(newXmlGregorianCalendar(1900, 0, 0));
+      return Optional.of(result);
     }
 
-    var obdsV2datePattern = Pattern.compile(OBDS2_DATE_REGEX);
-    var matcher = obdsV2datePattern.matcher(date);
-    if (matcher.matches()) {
-      var day = Integer.parseInt(matcher.group("day"));
-      var month = Integer.parseInt(matcher.group("month"));
-      var year = Integer.parseInt(matcher.group("year"));
+    var parsedDate = parseDateDigits(date);
+    if (parsedDate >= 0) {
+      var day = parsedDate % 100;
+      var month = parsedDate / 100 % 100;
+      var year = parsedDate / 10000;
 
-      calendar.set(Calendar.YEAR, year);
       result.setDatumsgenauigkeit(
           DatumTagOderMonatOderJahrOderNichtGenauTyp
               .DatumsgenauigkeitTagOderMonatOderJahrOderNichtGenau.M);
 
       if (month > 0) {
         // Starts with month "0"
-        calendar.set(Calendar.MONTH, month - 1);
         result.setDatumsgenauigkeit(
             DatumTagOderMonatOderJahrOderNichtGenauTyp
                 .DatumsgenauigkeitTagOderMonatOderJahrOderNichtGenau.T);
       }
 
       if (day > 0) {
-        calendar.set(Calendar.DAY_OF_MONTH, day);
         result.setDatumsgenauigkeit(
             DatumTagOderMonatOderJahrOderNichtGenauTyp
                 .DatumsgenauigkeitTagOderMonatOderJahrOderNichtGenau.E);
       }
 
-      try {
-        result.setValue(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
-        return Optional.of(result);
-      } catch (DatatypeConfigurationException e) {
-        return Optional.empty();
-      }
+      result.setValue(newXmlGregorianCalendar(year, month, day));
+      return Optional.of(result);
     }
 
     // Schätze kein Datum (Genauigkeit "V") bei Fehler
@@ -134,17 +129,11 @@ class MapperUtils {
 
     var result = new DatumTagOderMonatGenauTyp();
 
-    var obdsV2datePattern = Pattern.compile(OBDS2_DATE_REGEX);
-    var matcher = obdsV2datePattern.matcher(date);
-    if (matcher.matches()) {
-      var day = Integer.parseInt(matcher.group("day"));
-      var month = Integer.parseInt(matcher.group("month"));
-      var year = Integer.parseInt(matcher.group("year"));
-
-      var calendar = new GregorianCalendar();
-      calendar.clear();
-
-      calendar.set(Calendar.YEAR, year);
+    var parsedDate = parseDateDigits(date);
+    if (parsedDate >= 0) {
+      var day = parsedDate % 100;
+      var month = parsedDate / 100 % 100;
+      var year = parsedDate / 10000;
 
       if (month == 0 && day == 0) {
         // For DatumTagOderMonatGenauTyp, Datumsgenauigkeit is a required field.
@@ -158,21 +147,15 @@ class MapperUtils {
 
       if (month > 0) {
         // Starts with month "0"
-        calendar.set(Calendar.MONTH, month - 1);
         result.setDatumsgenauigkeit(DatumTagOderMonatGenauTyp.DatumsgenauigkeitTagOderMonatGenau.T);
       }
 
       if (day > 0) {
-        calendar.set(Calendar.DAY_OF_MONTH, day);
         result.setDatumsgenauigkeit(DatumTagOderMonatGenauTyp.DatumsgenauigkeitTagOderMonatGenau.E);
       }
 
-      try {
-        result.setValue(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
-        return Optional.of(result);
-      } catch (DatatypeConfigurationException e) {
-        return Optional.empty();
-      }
+      result.setValue(newXmlGregorianCalendar(year, month, day));
+      return Optional.of(result);
     }
 
     // Schätze kein Datum (Genauigkeit "V")
@@ -219,18 +202,88 @@ class MapperUtils {
       return Optional.empty();
     }
 
-    var obdsV2datePattern = Pattern.compile(OBDS2_DATE_REGEX);
-    var matcher = obdsV2datePattern.matcher(dateString.trim());
-    if (matcher.matches()) {
-      var day = Integer.parseInt(matcher.group("day"));
-      var month = Integer.parseInt(matcher.group("month"));
-      var year = Integer.parseInt(matcher.group("year"));
-
-      return Optional.of(LocalDate.of(year, month, day));
+    var parsedDate = parseDateDigits(dateString.trim());
+    if (parsedDate >= 0) {
+      return Optional.of(
+          LocalDate.of(parsedDate / 10000, parsedDate / 100 % 100, parsedDate % 100));
     }
     return Optional.empty();
   }
 
+  /**
+   * Parses oBDS v2 date string <code>TT.MM.JJJJ</code> as matched by {@link #OBDS2_DATE_REGEX}
+   * without using a regular expression. Day and month may be "00" if unknown.
+   *
+   * @param date The date string
+   * @return the date as number <code>JJJJMMTT</code> or -1 if the date string does not match
+   */
+  static int parseDateDigits(String date) {
+    if (date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') {
+      return -1;
+    }
+
+    var day = twoDigits(date, 0);
+    var month = twoDigits(date, 3);
+    var century = twoDigits(date, 6);
+    var yearOfCentury = twoDigits(date, 8);
+    if (day < 0
+        || day > 31
+        || month < 0
+        || month > 12
+        || century < 18
+        || century > 20
+        || yearOfCentury < 0) {
+      return -1;
+    }
+    return (century * 100 + yearOfCentury) * 10000 + month * 100 + day;
+  }
+
+  private static int twoDigits(String string, int index) {
+    var first = string.charAt(index);
+    var second = string.charAt(index + 1);
+    if (first < '0' || first > '9' || second < '0' || second > '9') {
+      return -1;
+    }
+    return (first - '0') * 10 + (second - '0');
+  }
+
+  /**
+   * Returns the current date like a mapped date string
+   *
+   * @return the calendar
+   */
+  static XMLGregorianCalendar today() {
+    var today = LocalDate.now();
+    return newXmlGregorianCalendar(today.getYear(), today.getMonthValue(), today.getDayOfMonth());
+  }
+
+  /**
+   * Creates the calendar at midnight of the given day in the default time zone - same as using a
+   * cleared <code>GregorianCalendar</code> with the given fields set
+   *
+   * @param year The year
+   * @param month The month or 0 if unknown
+   * @param day The day of month or 0 if unknown
+   * @return the calendar
+   */
+  private static XMLGregorianCalendar newXmlGregorianCalendar(int year, int month, int day) {
+    month = month == 0 ? 1 : month;
+    day = day == 0 ? 1 : day;
+
+    if (day > Month.of(month).length(Year.isLeap(year))) {
+      // A lenient GregorianCalendar rolls over into the next month
+      var date = LocalDate.of(year, month, 1).plusDays(day - 1L);
+      year = date.getYear();
+      month = date.getMonthValue();
+      day = date.getDayOfMonth();
+    }
+
+    var offset =
+        ZoneId.systemDefault().getRules().getOffset(LocalDateTime.of(year, month, day, 0, 0));
+    return DATATYPE_FACTORY.newXMLGregorianCalendar(
+        year, month, day, 0, 0, 0, 0, offset.getTotalSeconds() / 60);
+  }
+
   /**
    * Entferne alle nicht erlaubten Zeichen aus String
    *
@@ -239,8 +292,8 @@ class MapperUtils {
    * @return String mit entfernten unerlaubten Zeichen oder empty Optional
    */
   public static Optional<String> trimToMatchDatatype(String datatypeName, String string) {
-    return SchemaValidator.regexpPattern(datatypeName, SchemaValidator.SchemaVersion.OBDS_3_0_4)
-        .map(pattern -> string.replaceAll(String.format("[^%s]", pattern.pattern()), ""));
+    return SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4)
+        .removeDisallowedCharacters(datatypeName, string);
   }
 
   /**
@@ -0,0 +1,124 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.util.Optional;
+
+/**
+ * Outcome of mapping a single item, either the mapped value or the reason it has been rejected.
+ * Unlike an {@link UnmappableItemException}, a rejected outcome does not capture a stack trace, so
+ * rejecting items of dirty data is cheap.
+ *
+ * @param <T> The type of the mapped value
+ * @since 0.2.0
+ */
+public final class MappingOutcome<T> {
+
+  /**
+   * Reason an item has been rejected
+   *
+   * @param reason The reason
+   * @param meldungId The ID of the ADT_GEKID Meldung causing the rejection or <code>null</code> if
+   *     unknown
+   * @param message The message describing the rejection
+   */
+  public record Rejection(DropReason reason, String meldungId, String message) {}
+
+  private final T value;
+  private final Rejection rejection;
+  private final long meldungen;
+
+  private MappingOutcome(T value, Rejection rejection, long meldungen) {
+    this.value = value;
+    this.rejection = rejection;
+    this.meldungen = meldungen;
+  }
+
+  static <T> MappingOutcome<T> mapped(T value) {
+    return mapped(value, 0);
+  }
+
+  static <T> MappingOutcome<T> mapped(T value, long meldungen) {
+    return new MappingOutcome<>(value, null, meldungen);
+  }
+
+  static <T> MappingOutcome<T> rejected(Rejection rejection) {
+    return new MappingOutcome<>(null, rejection, 0);
+  }
+
+  static <T> MappingOutcome<T> rejected(DropReason reason, String meldungId, String message) {
+    return rejected(new Rejection(reason, meldungId, message));
+  }
+
+  /**
+   * Returns if the item has been mapped
+   *
+   * @return <code>true</code> if the item has been mapped, <code>false</code> if it has been
+   *     rejected
+   */
+  public boolean isMapped() {
+    return null == rejection;
+  }
+
+  /**
+   * Returns the mapped value
+   *
+   * @return the mapped value or an empty Optional if the item has been rejected or mapped to
+   *     nothing
+   */
+  public Optional<T> value() {
+    return Optional.ofNullable(value);
+  }
+
+  /**
+   * Returns the number of oBDS Meldungen counted while mapping the value - 0 if the item has been
+   * rejected
+   */
+  long meldungen() {
+    return meldungen;
+  }
+
+  /**
+   * Returns the reason the item has been rejected
+   *
+   * @return the rejection or an empty Optional if the item has been mapped
+   */
+  public Optional<Rejection> rejection() {
+    return Optional.ofNullable(rejection);
+  }
+
+  /**
+   * Returns the mapped value or throws the rejection as exception
+   *
+   * @return the mapped value - might be <code>null</code> if mapped to nothing
+   * @throws UnmappableItemException if the item has been rejected
+   */
+  public T orElseThrow() {
+    if (null != rejection) {
+      throw new UnmappableItemException(rejection.message());
+    }
+    return value;
+  }
+}
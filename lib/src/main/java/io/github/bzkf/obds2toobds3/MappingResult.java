@@ -0,0 +1,68 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v3.OBDS;
+import java.util.Map;
+
+/**
+ * Mapped oBDS document together with counters collected while it has been mapped.
+ *
+ * <p>Meldungen in are counted as ADT_GEKID Meldungen, Meldungen out as oBDS Meldungen. An ADT_GEKID
+ * Meldung may be mapped into several oBDS Meldungen. Dropped Meldungen are counted as ADT_GEKID
+ * Meldungen for {@link DropReason#INCOMPLETE_DIAGNOSE} and {@link DropReason#UNMAPPABLE_PATIENT}
+ * and as oBDS Meldungen for all other reasons.
+ *
+ * @param obds The mapped oBDS document
+ * @param patientsIn The number of ADT_GEKID patients
+ * @param patientsOut The number of mapped oBDS patients
+ * @param meldungenIn The number of ADT_GEKID Meldungen
+ * @param meldungenOut The number of mapped oBDS Meldungen
+ * @param droppedMeldungen The number of dropped Meldungen per reason, reasons without dropped
+ *     Meldungen are not contained
+ * @since 0.2.0
+ */
+public record MappingResult(
+    OBDS obds,
+    long patientsIn,
+    long patientsOut,
+    long meldungenIn,
+    long meldungenOut,
+    Map<DropReason, Long> droppedMeldungen) {
+
+  public MappingResult {
+    droppedMeldungen = Map.copyOf(droppedMeldungen);
+  }
+
+  /**
+   * Returns the number of Meldungen dropped for given reason
+   *
+   * @param reason The reason
+   * @return the number of dropped Meldungen
+   */
+  public long droppedMeldungen(DropReason reason) {
+    return droppedMeldungen.getOrDefault(reason, 0L);
+  }
+}
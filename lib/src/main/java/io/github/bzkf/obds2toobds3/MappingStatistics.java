@@ -0,0 +1,65 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts Meldungen mapped and dropped while mapping. Not thread-safe - each patient mapped
+ * concurrently uses its own instance, which is added to the document's statistics afterwards.
+ */
+class MappingStatistics {
+
+  private final EnumMap<DropReason, Long> droppedMeldungen = new EnumMap<>(DropReason.class);
+  private long mappedMeldungen;
+
+  void map(long count) {
+    mappedMeldungen += count;
+  }
+
+  void drop(DropReason reason) {
+    drop(reason, 1);
+  }
+
+  void drop(DropReason reason, long count) {
+    if (count > 0) {
+      droppedMeldungen.merge(reason, count, Long::sum);
+    }
+  }
+
+  void addAll(MappingStatistics other) {
+    other.droppedMeldungen.forEach(this::drop);
+    map(other.mappedMeldungen);
+  }
+
+  long getMappedMeldungen() {
+    return mappedMeldungen;
+  }
+
+  Map<DropReason, Long> getDroppedMeldungen() {
+    return droppedMeldungen;
+  }
+}
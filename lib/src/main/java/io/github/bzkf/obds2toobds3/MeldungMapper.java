@@ -24,13 +24,12 @@
 
 package io.github.bzkf.obds2toobds3;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import de.basisdatensatz.obds.v2.ADTGEKID;
 import de.basisdatensatz.obds.v3.*;
 import de.basisdatensatz.obds.v3.DiagnoseTyp.MengeFruehereTumorerkrankung.FruehereTumorerkrankung;
 import de.basisdatensatz.obds.v3.OBDS.MengePatient.Patient.MengeMeldung.Meldung;
 import java.util.*;
-import org.apache.commons.codec.digest.DigestUtils;
+import javax.xml.datatype.XMLGregorianCalendar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -51,10 +50,17 @@ class MeldungMapper {
 
   private final boolean ignoreUnmappableMessages;
   private final boolean fixMissingId;
+  private final boolean legacyMeldungIdHash;
 
   MeldungMapper(boolean ignoreUnmappableMessages, boolean fixMissingId) {
+    this(ignoreUnmappableMessages, fixMissingId, false);
+  }
+
+  MeldungMapper(
+      boolean ignoreUnmappableMessages, boolean fixMissingId, boolean legacyMeldungIdHash) {
     this.ignoreUnmappableMessages = ignoreUnmappableMessages;
     this.fixMissingId = fixMissingId;
+    this.legacyMeldungIdHash = legacyMeldungIdHash;
   }
 
   /**
@@ -64,24 +70,55 @@ class MeldungMapper {
    * @return
    */
   public List<Meldung> map(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+    return map(source, new MappingStatistics());
+  }
+
+  /**
+   * Mappe eine ADT_GEKID oBDS v2 Meldung in eine Liste von oBDS v3 Meldungen und zähle verworfene
+   * Meldungen
+   *
+   * @param source The source message
+   * @param statistics The statistics to count dropped Meldungen in
+   * @return the mapped messages
+   */
+  List<Meldung> map(
+      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source, MappingStatistics statistics) {
+    return mapOutcome(source, statistics).orElseThrow();
+  }
+
+  /**
+   * Mappe eine ADT_GEKID oBDS v2 Meldung in eine Liste von oBDS v3 Meldungen, ohne bei nicht
+   * mappbaren Meldungen eine Exception zu werfen
+   *
+   * @param source The source message
+   * @param statistics The statistics to count dropped Meldungen in
+   * @return the mapped messages or the reason the message has been rejected
+   */
+  MappingOutcome<List<Meldung>> mapOutcome(
+      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source, MappingStatistics statistics) {
     if (null == source) {
       throw new IllegalArgumentException(MUST_NOT_BE_NULL);
     }
 
-    if (null == source.getMeldungID() || source.getMeldungID().isBlank()) {
+    // The source is not changed - a generated Meldung_ID is only used for the mapped Meldungen
+    var meldungId = source.getMeldungID();
+    if (null == meldungId || meldungId.isBlank()) {
       LOG.warn("Meldung ID is unset or blank. Replacing with hash value of the content.");
-      try {
-        var meldungXml = ObdsMapper.XML_MAPPER.writeValueAsString(source);
-        // Meldung_ID can be 50 chars max
-        var digest = DigestUtils.sha256Hex(meldungXml).substring(0, 49);
-        source.setMeldungID(digest);
-      } catch (JsonProcessingException e) {
-        throw new IllegalArgumentException(e);
-      }
+      meldungId =
+          legacyMeldungIdHash ? ContentHash.legacyMeldungId(source) : ContentHash.meldungId(source);
     }
 
-    MDC.put("meldungId", source.getMeldungID());
+    MDC.put("meldungId", meldungId);
+    try {
+      return mapMeldungen(new MeldungContext(source, meldungId), statistics);
+    } finally {
+      MDC.remove("meldungId");
+    }
+  }
 
+  private MappingOutcome<List<Meldung>> mapMeldungen(
+      MeldungContext context, MappingStatistics statistics) {
+    var source = context.source;
     if (null == source.getTumorzuordnung()
         && (null == source.getDiagnose()
             || null == source.getDiagnose().getPrimaertumorICDCode()
@@ -90,9 +127,19 @@ class MeldungMapper {
       LOG.warn("Meldung has incomplete Diagnose data: ICD_Code, ICD_Version may be null.");
 
       if (ignoreUnmappableMessages) {
-        return new ArrayList<>();
+        statistics.drop(DropReason.INCOMPLETE_DIAGNOSE);
+        return MappingOutcome.mapped(List.of());
       }
-      throw new UnmappableItemException(TUMORZUORDUNG_SHOULD_NOT_BE_NULL);
+      return MappingOutcome.rejected(
+          DropReason.INCOMPLETE_DIAGNOSE, context.meldungId, TUMORZUORDUNG_SHOULD_NOT_BE_NULL);
+    }
+
+    // Jede Meldung erhält die Tumorzuordnung der Quellmeldung - ohne Tumor-ID ist keine mappbar
+    if (null != source.getTumorzuordnung()
+        && !hasTumorId(source.getTumorzuordnung(), context.meldungId)) {
+      LOG.error("TumorID is null");
+      return MappingOutcome.rejected(
+          DropReason.MISSING_TUMOR_ID, context.meldungId, TUMORID_MUST_NOT_BE_NULL);
     }
 
     var result = new ArrayList<Meldung>();
@@ -101,90 +148,92 @@ class MeldungMapper {
     // kein Diagnose-Element.
     if (null != source.getDiagnose()) {
       if ("histologie_zytologie".equals(source.getMeldeanlass())) {
-        var pathomeldung = getMeldungPathologie(source);
+        var pathomeldung = getMeldungPathologie(context);
         // Füge Zusatzitems zur Diagnosemeldung hinzu, wenn vorhanden und nicht
         // "Einsender"
-        getMengeZusatzitemTyp(source)
+        context
+            .zusatzitemIndex()
             .ifPresent(
                 zusatzitems -> {
-                  var filtered =
-                      zusatzitems.getZusatzitem().stream()
-                          .filter(zusatzitem -> !zusatzitem.getArt().startsWith("Einsender"))
-                          .toList();
                   var mengeZusatzitemTyp = new MengeZusatzitemTyp();
-                  mengeZusatzitemTyp.getZusatzitem().addAll(filtered);
+                  mengeZusatzitemTyp.getZusatzitem().addAll(zusatzitems.withoutEinsender());
                   pathomeldung.setMengeZusatzitem(mengeZusatzitemTyp);
                 });
         result.add(pathomeldung);
       } else {
-        try {
-          // Diagnose als einzelne Meldung
-          var diagnosemeldung = getMeldungDiagnose(source);
-          // Füge Zusatzitems zur Diagnosemeldung hinzu, wenn vorhanden
-          getMengeZusatzitemTyp(source).ifPresent(diagnosemeldung::setMengeZusatzitem);
-          result.add(diagnosemeldung);
-        } catch (UnmappableItemException e) {
-          LOG.error("Failed to map Diagnosemeldung", e);
-          if (!ignoreUnmappableMessages) {
-            throw e;
-          }
-        }
+        // Diagnose als einzelne Meldung
+        var diagnosemeldung = getMeldungDiagnose(context);
+        // Füge Zusatzitems zur Diagnosemeldung hinzu, wenn vorhanden
+        context.mengeZusatzitem().ifPresent(diagnosemeldung::setMengeZusatzitem);
+        result.add(diagnosemeldung);
       }
     }
 
     // SYSTs als einzelne Meldungen
-    result.addAll(getMappedSYSTs(source));
+    result.addAll(getMappedSYSTs(context));
     // STs als einzelne Meldung
-    result.addAll(getMappedSTs(source));
+    result.addAll(getMappedSTs(context));
     // OPs als einzelne Meldung
-    result.addAll(getMappedOPs(source));
+    result.addAll(getMappedOPs(context));
     // Tumorkonferenzen als einzelne Meldung
-    result.addAll(getMappedTumorkonferenzen(source));
+    result.addAll(getMappedTumorkonferenzen(context));
     // Verlauf - Ohne: oOBDS v2 Verlauf - Tod
-    result.addAll(getMappedVerlauf(source));
+    result.addAll(getMappedVerlauf(context));
     // Verlauf - Hier: oBDS v2 Verlauf - Tod
-    getMeldungTod(source).ifPresent(result::add);
+    getMeldungTod(context).ifPresent(result::add);
 
     // Für jede Meldung: Ergänze Tumorzuordnung aus Diagnose, wenn möglich und noch
     // nicht vorhanden
-    result.forEach(
-        meldung -> {
-          if (null == meldung.getTumorzuordnung()) {
-            try {
-              getMappedTumorzuordung(source).ifPresent(meldung::setTumorzuordnung);
-            } catch (UnmappableItemException e) {
-              LOG.error("Failed to map Tumorzuordnung", e);
-              if (!ignoreUnmappableMessages) {
-                throw e;
-              }
-            }
+    for (var meldung : result) {
+      if (null == meldung.getTumorzuordnung()) {
+        var tumorzuordnung = context.tumorzuordnung();
+        if (!tumorzuordnung.isMapped()) {
+          LOG.error("Failed to map Tumorzuordnung");
+          if (!ignoreUnmappableMessages) {
+            return MappingOutcome.rejected(tumorzuordnung.rejection().orElseThrow());
           }
-        });
+        }
+        tumorzuordnung.value().map(MeldungMapper::copy).ifPresent(meldung::setTumorzuordnung);
+      }
+    }
 
     if (result.isEmpty()) {
       LOG.warn("Couldn't map any Meldung for source. Adding empty Meldung with Tumorzuordnung.");
-      var meldung = getMeldungsRumpf(source);
-      meldung.setMeldungID(source.getMeldungID());
+      var meldung = context.meldungsRumpf();
+      meldung.setMeldungID(context.meldungId);
       meldung.setMelderID(source.getMelderID());
-      getMappedTumorzuordung(source).ifPresent(meldung::setTumorzuordnung);
+      var tumorzuordnung = context.tumorzuordnung();
+      if (!tumorzuordnung.isMapped()) {
+        return MappingOutcome.rejected(tumorzuordnung.rejection().orElseThrow());
+      }
+      tumorzuordnung.value().map(MeldungMapper::copy).ifPresent(meldung::setTumorzuordnung);
       result.add(meldung);
     }
 
-    MDC.remove("meldungId");
-
-    return result.stream()
-        .filter(
-            meldung ->
-                !ignoreUnmappableMessages
-                    || (null != meldung.getTumorzuordnung()
-                        && null != meldung.getTumorzuordnung().getTumorID()))
-        .toList();
+    if (!ignoreUnmappableMessages) {
+      return MappingOutcome.mapped(result);
+    }
+    return MappingOutcome.mapped(
+        result.stream()
+            .filter(
+                meldung -> {
+                  if (null == meldung.getTumorzuordnung()) {
+                    statistics.drop(DropReason.MISSING_TUMORZUORDNUNG);
+                    return false;
+                  }
+                  if (null == meldung.getTumorzuordnung().getTumorID()) {
+                    statistics.drop(DropReason.MISSING_TUMOR_ID);
+                    return false;
+                  }
+                  return true;
+                })
+            .toList());
   }
 
-  private Optional<TumorzuordnungTyp> getMappedTumorzuordung(
-      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung) {
+  private MappingOutcome<TumorzuordnungTyp> getMappedTumorzuordung(
+      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung, String meldungId) {
     if (null == meldung) {
-      return Optional.empty();
+      return MappingOutcome.mapped(null);
     }
 
     var source = meldung.getDiagnose();
@@ -194,7 +243,7 @@ class MeldungMapper {
         || null == source.getPrimaertumorICDCode()
         || null == source.getPrimaertumorICDVersion()) {
       LOG.warn("Tumorzuordnung Diagnosedatum, ICD_Code or ICD_Version are null");
-      return Optional.empty();
+      return MappingOutcome.mapped(null);
     }
 
     var mappedTumorzuordnung = new TumorzuordnungTyp();
@@ -203,21 +252,16 @@ class MeldungMapper {
         && null == source.getTumorID()
         && null != source.getDiagnosedatum()
         && null != source.getPrimaertumorICDCode()
-        && null != meldung.getMeldungID()) {
-      var generatedTumorId =
-          DigestUtils.sha1Hex(
-                  String.format(
-                      "%s_%s_%s",
-                      source.getDiagnosedatum(),
-                      source.getPrimaertumorICDCode(),
-                      meldung.getMeldungID()))
-              .subSequence(0, 16);
-      mappedTumorzuordnung.setTumorID(String.format("TID_%s", generatedTumorId));
+        && null != meldungId) {
+      mappedTumorzuordnung.setTumorID(
+          ContentHash.tumorId(
+              source.getDiagnosedatum(), source.getPrimaertumorICDCode(), meldungId));
     } else if (null != source.getTumorID()) {
       mappedTumorzuordnung.setTumorID(source.getTumorID());
     } else {
       LOG.error("TumorID is null");
-      throw new UnmappableItemException(TUMORID_MUST_NOT_BE_NULL);
+      return MappingOutcome.rejected(
+          DropReason.MISSING_TUMOR_ID, meldungId, TUMORID_MUST_NOT_BE_NULL);
     }
     // Datum
     MapperUtils.mapDateString(source.getDiagnosedatum())
@@ -234,10 +278,52 @@ class MeldungMapper {
           SeitenlokalisationTyp.fromValue(source.getSeitenlokalisation().value()));
     }
 
-    return Optional.of(mappedTumorzuordnung);
+    return MappingOutcome.mapped(mappedTumorzuordnung);
+  }
+
+  /** Kopie der Tumorzuordnung, damit jede Meldung ihre eigene erhält */
+  private static TumorzuordnungTyp copy(TumorzuordnungTyp source) {
+    if (null == source) {
+      return null;
+    }
+    var result = new TumorzuordnungTyp();
+    result.setTumorID(source.getTumorID());
+    result.setSeitenlokalisation(source.getSeitenlokalisation());
+    if (null != source.getPrimaertumorICD()) {
+      var icd10 = new TumorICDTyp();
+      icd10.setCode(source.getPrimaertumorICD().getCode());
+      icd10.setVersion(source.getPrimaertumorICD().getVersion());
+      result.setPrimaertumorICD(icd10);
+    }
+    if (null != source.getDiagnosedatum()) {
+      var diagnosedatum = new DatumTagOderMonatOderJahrOderNichtGenauTyp();
+      diagnosedatum.setDatumsgenauigkeit(source.getDiagnosedatum().getDatumsgenauigkeit());
+      if (null != source.getDiagnosedatum().getValue()) {
+        diagnosedatum.setValue((XMLGregorianCalendar) source.getDiagnosedatum().getValue().clone());
+      }
+      result.setDiagnosedatum(diagnosedatum);
+    }
+    if (null != source.getMorphologieICDO()) {
+      var morphologie = new MorphologieICDOTyp();
+      morphologie.setCode(source.getMorphologieICDO().getCode());
+      morphologie.setVersion(source.getMorphologieICDO().getVersion());
+      result.setMorphologieICDO(morphologie);
+    }
+    return result;
+  }
+
+  private boolean hasTumorId(
+      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung.Tumorzuordnung tumorzuordnung,
+      String meldungId) {
+    return null != tumorzuordnung.getTumorID()
+        || (fixMissingId
+            && null != tumorzuordnung.getDiagnosedatum()
+            && null != tumorzuordnung.getPrimaertumorICDCode()
+            && null != meldungId);
   }
 
-  private List<Meldung> getMappedSYSTs(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private List<Meldung> getMappedSYSTs(MeldungContext context) {
+    var source = context.source;
     var mengeSYST = source.getMengeSYST();
     if (mengeSYST == null || mengeSYST.getSYST().isEmpty()) {
       return List.of();
@@ -248,16 +334,17 @@ class MeldungMapper {
     return mappedSyst.stream()
         .map(
             mappedSysTyp -> {
-              var meldung = getMeldungsRumpf(source);
+              var meldung = context.meldungsRumpf();
               meldung.setMeldungID(
-                  String.format("%s_%s", source.getMeldungID(), mappedSysTyp.getSYSTID()));
+                  String.format("%s_%s", context.meldungId, mappedSysTyp.getSYSTID()));
               meldung.setSYST(mappedSysTyp);
               return meldung;
             })
         .toList();
   }
 
-  private List<Meldung> getMappedOPs(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private List<Meldung> getMappedOPs(MeldungContext context) {
+    var source = context.source;
     var mengeOP = source.getMengeOP();
     if (mengeOP == null || mengeOP.getOP().isEmpty()) {
       return List.of();
@@ -268,16 +355,17 @@ class MeldungMapper {
     return mappedOps.stream()
         .map(
             mappedOpTyp -> {
-              var meldung = getMeldungsRumpf(source);
+              var meldung = context.meldungsRumpf();
               meldung.setMeldungID(
-                  String.format("%s_%s", source.getMeldungID(), mappedOpTyp.getOPID()));
+                  String.format("%s_%s", context.meldungId, mappedOpTyp.getOPID()));
               meldung.setOP(mappedOpTyp);
               return meldung;
             })
         .toList();
   }
 
-  private List<Meldung> getMappedSTs(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private List<Meldung> getMappedSTs(MeldungContext context) {
+    var source = context.source;
     var mengeOP = source.getMengeST();
     if (mengeOP == null || mengeOP.getST().isEmpty()) {
       return List.of();
@@ -288,9 +376,9 @@ class MeldungMapper {
     return mappedSTs.stream()
         .map(
             mappedSTTyp -> {
-              var meldung = getMeldungsRumpf(source);
+              var meldung = context.meldungsRumpf();
               meldung.setMeldungID(
-                  String.format("%s_%s", source.getMeldungID(), mappedSTTyp.getSTID()));
+                  String.format("%s_%s", context.meldungId, mappedSTTyp.getSTID()));
               meldung.setST(mappedSTTyp);
               return meldung;
             })
@@ -348,14 +436,14 @@ class MeldungMapper {
    * @param source
    * @return
    */
-  private Optional<Meldung> getMeldungTod(
-      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private Optional<Meldung> getMeldungTod(MeldungContext context) {
+    var source = context.source;
     if (null == source) {
       throw new IllegalArgumentException(MUST_NOT_BE_NULL);
     }
 
-    var meldung = getMeldungsRumpf(source);
-    meldung.setMeldungID(String.format("%s__D", source.getMeldungID()));
+    var meldung = context.meldungsRumpf();
+    meldung.setMeldungID(String.format("%s__D", context.meldungId));
 
     var mengeVerlauf = source.getMengeVerlauf();
     // it's also possible for the Verlauf to be empty but the meldeanlass to be
@@ -428,8 +516,8 @@ class MeldungMapper {
     return Optional.empty();
   }
 
-  private List<Meldung> getMappedTumorkonferenzen(
-      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private List<Meldung> getMappedTumorkonferenzen(MeldungContext context) {
+    var source = context.source;
     if (null == source) {
       throw new IllegalArgumentException(MUST_NOT_BE_NULL);
     }
@@ -463,10 +551,10 @@ class MeldungMapper {
             anmerkungAndMappedTumorkonferenz -> {
               var anmerkung = anmerkungAndMappedTumorkonferenz.getKey();
               var mappedTumorkonferenz = anmerkungAndMappedTumorkonferenz.getValue();
-              var meldung = getMeldungsRumpf(source);
+              var meldung = context.meldungsRumpf();
               meldung.setMeldungID(
                   String.format(
-                      "%s_%s", source.getMeldungID(), mappedTumorkonferenz.getTumorkonferenzID()));
+                      "%s_%s", context.meldungId, mappedTumorkonferenz.getTumorkonferenzID()));
               meldung.setTumorkonferenz(mappedTumorkonferenz);
               // Anmerkung übernommen aus oBDS v2 -> Meldung-Tumorkonferenz
               meldung.setAnmerkung(anmerkung);
@@ -475,8 +563,8 @@ class MeldungMapper {
         .toList();
   }
 
-  private List<Meldung> getMappedVerlauf(
-      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private List<Meldung> getMappedVerlauf(MeldungContext context) {
+    var source = context.source;
     if (null == source) {
       throw new IllegalArgumentException(MUST_NOT_BE_NULL);
     }
@@ -562,16 +650,17 @@ class MeldungMapper {
             })
         .map(
             mappedVerlauf -> {
-              var meldung = getMeldungsRumpf(source);
+              var meldung = context.meldungsRumpf();
               meldung.setMeldungID(
-                  String.format("%s_%s", source.getMeldungID(), mappedVerlauf.getVerlaufID()));
+                  String.format("%s_%s", context.meldungId, mappedVerlauf.getVerlaufID()));
               meldung.setVerlauf(mappedVerlauf);
               return meldung;
             })
         .toList();
   }
 
-  private Meldung getMeldungDiagnose(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private Meldung getMeldungDiagnose(MeldungContext context) {
+    var source = context.source;
     var diagnose = source.getDiagnose();
     if (null == diagnose) {
       throw new IllegalArgumentException(DIAGNOSE_SHOULD_NOT_BE_NULL);
@@ -667,13 +756,14 @@ class MeldungMapper {
       mappedDiagnose.setAllgemeinerLeistungszustand(AllgemeinerLeistungszustand.U);
     }
 
-    var mappedMeldung = getMeldungsRumpf(source);
-    mappedMeldung.setMeldungID(source.getMeldungID());
+    var mappedMeldung = context.meldungsRumpf();
+    mappedMeldung.setMeldungID(context.meldungId);
     mappedMeldung.setDiagnose(mappedDiagnose);
     return mappedMeldung;
   }
 
-  private Meldung getMeldungPathologie(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private Meldung getMeldungPathologie(MeldungContext context) {
+    var source = context.source;
     var diagnose = source.getDiagnose();
     if (null == diagnose) {
       throw new IllegalArgumentException(DIAGNOSE_SHOULD_NOT_BE_NULL);
@@ -726,49 +816,35 @@ class MeldungMapper {
     }
 
     // Einsender aus Zusatzitems
-    getMengeZusatzitemTyp(source)
+    context
+        .zusatzitemIndex()
         .ifPresent(
             zusatzitems -> {
               var einsender = new PathologieTyp.Einsender();
               var strukturiert = new PathologieTyp.Einsender.Strukturiert();
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_Einrichtung".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setEinrichtung(item.getWert()));
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_Klinik_Abteilung_Praxis".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setAbteilung(item.getWert()));
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_Strasse".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setStrasse(item.getWert()));
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_Hausnummer".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setHausnummer(item.getWert()));
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_PLZ".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setPLZ(item.getWert()));
-              zusatzitems.getZusatzitem().stream()
-                  .filter(item -> "Einsender_Ort".equals(item.getArt()))
-                  .findFirst()
-                  .ifPresent(item -> strukturiert.setOrt(item.getWert()));
+              zusatzitems.wert("Einsender_Einrichtung").ifPresent(strukturiert::setEinrichtung);
+              zusatzitems
+                  .wert("Einsender_Klinik_Abteilung_Praxis")
+                  .ifPresent(strukturiert::setAbteilung);
+              zusatzitems.wert("Einsender_Strasse").ifPresent(strukturiert::setStrasse);
+              zusatzitems.wert("Einsender_Hausnummer").ifPresent(strukturiert::setHausnummer);
+              zusatzitems.wert("Einsender_PLZ").ifPresent(strukturiert::setPLZ);
+              zusatzitems.wert("Einsender_Ort").ifPresent(strukturiert::setOrt);
               // Not in obds2!
               strukturiert.setLand("DE");
               einsender.setStrukturiert(strukturiert);
               mappedPathologie.setEinsender(einsender);
             });
 
-    var mappedMeldung = getMeldungsRumpf(source);
-    mappedMeldung.setMeldungID(source.getMeldungID());
+    var mappedMeldung = context.meldungsRumpf();
+    mappedMeldung.setMeldungID(context.meldungId);
     mappedMeldung.setPathologie(mappedPathologie);
 
     return mappedMeldung;
   }
 
-  private Meldung getMeldungsRumpf(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source) {
+  private Meldung getMeldungsRumpf(
+      ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source, String meldungId) {
     if (null == source) {
       throw new IllegalArgumentException("Source cannot be null");
     }
@@ -802,19 +878,16 @@ class MeldungMapper {
           && null == tumorzuordnung.getTumorID()
           && null != tumorzuordnung.getDiagnosedatum()
           && null != tumorzuordnung.getPrimaertumorICDCode()
-          && null != source.getMeldungID()) {
-        var generatedTumorId =
-            DigestUtils.sha1Hex(
-                    String.format(
-                        "%s_%s_%s",
-                        tumorzuordnung.getDiagnosedatum(),
-                        tumorzuordnung.getPrimaertumorICDCode(),
-                        source.getMeldungID()))
-                .subSequence(0, 16);
-        mappedTumorzuordnung.setTumorID(String.format("TID_%s", generatedTumorId));
+          && null != meldungId) {
+        mappedTumorzuordnung.setTumorID(
+            ContentHash.tumorId(
+                tumorzuordnung.getDiagnosedatum(),
+                tumorzuordnung.getPrimaertumorICDCode(),
+                meldungId));
       } else if (null != tumorzuordnung.getTumorID()) {
         mappedTumorzuordnung.setTumorID(tumorzuordnung.getTumorID());
       } else {
+        // Already rejected by hasTumorId() - never reached
         throw new UnmappableItemException(TUMORID_MUST_NOT_BE_NULL);
       }
       // Datum
@@ -969,4 +1042,62 @@ class MeldungMapper {
         .ifPresent(mappedHisto::setTumorHistologiedatum);
     return Optional.of(mappedHisto);
   }
+
+  /**
+   * Aus einer ADT_GEKID Meldung abgeleitete Werte, die für mehrere oBDS Meldungen benötigt werden.
+   * Jeder Wert wird höchstens einmal je ADT_GEKID Meldung berechnet. Jede daraus erzeugte oBDS
+   * Meldung erhält eine eigene Kopie der gemappten Tumorzuordnung.
+   */
+  private final class MeldungContext {
+    private final ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source;
+    // Meldung_ID der Meldung oder, wenn nicht vorhanden, aus dem Inhalt generiert
+    private final String meldungId;
+
+    private MappingOutcome<TumorzuordnungTyp> tumorzuordnung;
+    private Optional<MengeZusatzitemTyp> mengeZusatzitem;
+    private Optional<ZusatzitemIndex> zusatzitemIndex;
+    private Meldung meldungsRumpf;
+
+    private MeldungContext(
+        ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung source, String meldungId) {
+      this.source = source;
+      this.meldungId = meldungId;
+    }
+
+    /** Tumorzuordnung aus der Diagnose der Meldung */
+    private MappingOutcome<TumorzuordnungTyp> tumorzuordnung() {
+      if (null == tumorzuordnung) {
+        tumorzuordnung = getMappedTumorzuordung(source, meldungId);
+      }
+      return tumorzuordnung;
+    }
+
+    private Optional<MengeZusatzitemTyp> mengeZusatzitem() {
+      if (null == mengeZusatzitem) {
+        mengeZusatzitem = getMengeZusatzitemTyp(source);
+      }
+      return mengeZusatzitem;
+    }
+
+    private Optional<ZusatzitemIndex> zusatzitemIndex() {
+      if (null == zusatzitemIndex) {
+        zusatzitemIndex = mengeZusatzitem().map(ZusatzitemIndex::new);
+      }
+      return zusatzitemIndex;
+    }
+
+    /** Neue Meldung mit den Feldern, die jede aus der Meldung erzeugte Meldung enthält */
+    private Meldung meldungsRumpf() {
+      if (null == meldungsRumpf) {
+        meldungsRumpf = getMeldungsRumpf(source, meldungId);
+      }
+      var mappedMeldung = new Meldung();
+      mappedMeldung.setMelderID(meldungsRumpf.getMelderID());
+      mappedMeldung.setAnmerkung(meldungsRumpf.getAnmerkung());
+      mappedMeldung.setMeldebegruendung(meldungsRumpf.getMeldebegruendung());
+      mappedMeldung.setEigeneLeistung(meldungsRumpf.getEigeneLeistung());
+      mappedMeldung.setTumorzuordnung(copy(meldungsRumpf.getTumorzuordnung()));
+      return mappedMeldung;
+    }
+  }
 }
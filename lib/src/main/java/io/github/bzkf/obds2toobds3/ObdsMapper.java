@@ -25,23 +25,53 @@
 package io.github.bzkf.obds2toobds3;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.module.jakarta.xmlbind.JakartaXmlBindAnnotationModule;
 import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.AbsenderTyp;
+import de.basisdatensatz.obds.v3.DatumTagOderMonatOderJahrOderNichtGenauTyp;
 import de.basisdatensatz.obds.v3.OBDS;
-import java.text.SimpleDateFormat;
-import java.util.Objects;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-public class ObdsMapper {
+/**
+ * Mapper for ADT_GEKID (oBDS v2) documents into oBDS v3 documents.
+ *
+ * <p>A built mapper is immutable and thread-safe, so a single instance can be shared by many
+ * threads, e.g. the request threads of a server. Diagnostic context values set in the SLF4J {@link
+ * org.slf4j.MDC} while mapping are removed before a method returns. Readers and writers created by
+ * the mapper hold the state of a single document and must not be shared. Source documents are not
+ * changed while they are mapped - a missing Meldung_ID is generated for the mapped Meldungen only.
+ *
+ * <p>A mapper built with a parallelism greater than 1 owns a thread pool, which is shut down by
+ * {@link #close()}. Closing any other mapper has no effect.
+ */
+public class ObdsMapper implements AutoCloseable {
 
   public static final XmlMapper XML_MAPPER =
       XmlMapper.builder()
           .defaultUseWrapper(false)
-          .defaultDateFormat(new SimpleDateFormat("yyyy-MM-dd"))
+          .addModule(new XmlDateModule())
           .addModule(new JakartaXmlBindAnnotationModule())
           .addModule(new Jdk8Module())
           .enable(SerializationFeature.INDENT_OUTPUT)
@@ -52,12 +82,27 @@ public class ObdsMapper {
 
   private final boolean ignoreUnmappable;
   private final boolean disableSchemaValidation;
+  private final boolean ignoreInvalidPatients;
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final PatientShard patientShard;
 
   private ObdsMapper(
-      boolean ignoreUnmappable, boolean fixMissingId, boolean disableSchemaValidation) {
+      boolean ignoreUnmappable,
+      boolean fixMissingId,
+      boolean legacyMeldungIdHash,
+      boolean disableSchemaValidation,
+      boolean ignoreInvalidPatients,
+      Executor executor,
+      ExecutorService ownedExecutor,
+      PatientShard patientShard) {
     this.ignoreUnmappable = ignoreUnmappable;
     this.disableSchemaValidation = disableSchemaValidation;
-    patientMapper = new PatientMapper(ignoreUnmappable, fixMissingId);
+    this.ignoreInvalidPatients = ignoreInvalidPatients;
+    this.executor = null == ownedExecutor ? executor : ownedExecutor;
+    this.ownedExecutor = ownedExecutor;
+    this.patientShard = patientShard;
+    patientMapper = new PatientMapper(ignoreUnmappable, fixMissingId, legacyMeldungIdHash);
   }
 
   public static Builder builder() {
@@ -65,6 +110,18 @@ public class ObdsMapper {
   }
 
   public OBDS map(ADTGEKID adtgekid) {
+    return mapWithResult(adtgekid).obds();
+  }
+
+  /**
+   * Maps an ADT_GEKID document and counts patients and Meldungen while doing so
+   *
+   * @param adtgekid The ADT_GEKID document
+   * @return the mapped oBDS document together with its counters
+   * @throws UnmappableItemException if a patient cannot be mapped and is not ignored
+   * @since 0.2.0
+   */
+  public MappingResult mapWithResult(ADTGEKID adtgekid) {
     if (null == adtgekid) {
       throw new IllegalArgumentException("ADT_GEKID source cannot be null");
     }
@@ -75,79 +132,480 @@ public class ObdsMapper {
     // In oBDSv2 nicht so definiert
     // Letztes Meldedatum aus oBDSv2 Menge_Meldung?
     adtgekid.getMengePatient().getPatient().stream()
-        .map(
-            patient ->
-                patient.getMengeMeldung().getMeldung().stream()
-                    .map(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung::getMeldedatum)
-                    .map(MapperUtils::mapDateString)
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .findFirst())
+        .map(this::mapMeldedatum)
         .filter(Optional::isPresent)
         .map(Optional::get)
         .findFirst()
-        .ifPresent(
-            datumTagOderMonatOderJahrOderNichtGenauTyp ->
-                obds.setMeldedatum(datumTagOderMonatOderJahrOderNichtGenauTyp.getValue()));
+        .ifPresent(obds::setMeldedatum);
 
     // Absender der Meldung
-    var absender = adtgekid.getAbsender();
-    assert absender != null;
-    obds.setAbsender(AbsenderMapper.map(absender));
+    obds.setAbsender(mapAbsender(adtgekid.getAbsender()));
 
     // Menge Patient
     var mengePatient = adtgekid.getMengePatient();
     assert mengePatient != null;
 
+    var statistics = new MappingStatistics();
     var mappedMengePatient = new OBDS.MengePatient();
-    mappedMengePatient
-        .getPatient()
-        .addAll(
-            mengePatient.getPatient().stream()
-                .map(
-                    patient -> {
-                      try {
-                        return patientMapper.map(patient);
-                      } catch (UnmappableItemException e) {
-                        if (!ignoreUnmappable) {
-                          throw e;
-                        }
-                        return null;
-                      }
-                    })
-                .filter(Objects::nonNull)
-                .filter(
-                    patient ->
-                        !ignoreUnmappable
-                            || (null != patient.getMengeMeldung()
-                                && !patient.getMengeMeldung().getMeldung().isEmpty()))
-                .toList());
+    mappedMengePatient.getPatient().addAll(mapPatients(mengePatient.getPatient(), statistics));
     obds.setMengePatient(mappedMengePatient);
 
     // Menge Melder
-    var mengeMelder = adtgekid.getMengeMelder();
+    obds.setMengeMelder(mapMengeMelder(adtgekid.getMengeMelder()));
+
+    return new MappingResult(
+        obds,
+        mengePatient.getPatient().size(),
+        mappedMengePatient.getPatient().size(),
+        mengePatient.getPatient().stream()
+            .mapToLong(patient -> patient.getMengeMeldung().getMeldung().size())
+            .sum(),
+        statistics.getMappedMeldungen(),
+        statistics.getDroppedMeldungen());
+  }
+
+  /**
+   * Maps the Absender of an ADT_GEKID document
+   *
+   * @param absender The ADT_GEKID Absender
+   * @return the mapped Absender
+   */
+  public AbsenderTyp mapAbsender(ADTGEKID.Absender absender) {
+    assert absender != null;
+    return AbsenderMapper.map(absender);
+  }
+
+  /**
+   * Maps the Menge_Melder of an ADT_GEKID document
+   *
+   * @param mengeMelder The ADT_GEKID Menge_Melder
+   * @return the mapped Menge_Melder
+   */
+  public OBDS.MengeMelder mapMengeMelder(ADTGEKID.MengeMelder mengeMelder) {
     assert mengeMelder != null;
 
     var mappedMengeMelder = new OBDS.MengeMelder();
     mappedMengeMelder
         .getMelder()
         .addAll(mengeMelder.getMelder().stream().map(MelderMapper::map).toList());
-    obds.setMengeMelder(mappedMengeMelder);
+    return mappedMengeMelder;
+  }
 
-    return obds;
+  /**
+   * Returns the oBDS Meldedatum provided by an ADT_GEKID patient. The Meldedatum of a mapped oBDS
+   * document is taken from the first patient providing one, the Meldedatum of a document written
+   * one patient at a time from its first patient.
+   *
+   * @param patient The ADT_GEKID patient
+   * @return the Meldedatum of the first Meldung with a mappable Meldedatum or an empty Optional
+   */
+  public Optional<XMLGregorianCalendar> mapMeldedatum(ADTGEKID.MengePatient.Patient patient) {
+    return patient.getMengeMeldung().getMeldung().stream()
+        .map(ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung::getMeldedatum)
+        .map(MapperUtils::mapDateString)
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .findFirst()
+        .map(DatumTagOderMonatOderJahrOderNichtGenauTyp::getValue);
+  }
+
+  /**
+   * Returns the Meldedatum of a document written one patient at a time, if its first patient does
+   * not provide one: the current date. Later patients are not taken into account, so no more than
+   * the first patient has to be held back until the header is written. The oBDS schema requires a
+   * Meldedatum. Documents using the fallback are not reproducible and differ from the result of
+   * {@link #map(ADTGEKID)}, which does not use a fallback.
+   *
+   * @return the current date
+   * @since 0.2.0
+   */
+  public static XMLGregorianCalendar fallbackMeldedatum() {
+    return MapperUtils.today();
+  }
+
+  /**
+   * Maps a single ADT_GEKID patient. If unmappable items are ignored, an empty Optional is returned
+   * for unmappable patients and patients without any mappable Meldung.
+   *
+   * @param patient The ADT_GEKID patient
+   * @return the mapped patient or an empty Optional if the patient has been ignored
+   * @throws UnmappableItemException if the patient cannot be mapped and is not ignored
+   */
+  public Optional<OBDS.MengePatient.Patient> mapPatient(ADTGEKID.MengePatient.Patient patient) {
+    return mapPatient(patient, new MappingStatistics());
+  }
+
+  private Optional<OBDS.MengePatient.Patient> mapPatient(
+      ADTGEKID.MengePatient.Patient patient, MappingStatistics statistics) {
+    var mappedPatient = mapPatientOutcome(patient, statistics);
+    if (!ignoreUnmappable) {
+      return Optional.of(mappedPatient.orElseThrow());
+    }
+    return mappedPatient.value();
+  }
+
+  /**
+   * Maps a single ADT_GEKID patient without throwing an exception for unmappable patients. If
+   * unmappable items are ignored, patients without any mappable Meldung are rejected as well.
+   *
+   * @param patient The ADT_GEKID patient
+   * @return the mapped patient or the reason the patient has been rejected
+   * @since 0.2.0
+   */
+  public MappingOutcome<OBDS.MengePatient.Patient> mapPatientOutcome(
+      ADTGEKID.MengePatient.Patient patient) {
+    return mapPatientOutcome(patient, new MappingStatistics());
+  }
+
+  private MappingOutcome<OBDS.MengePatient.Patient> mapPatientOutcome(
+      ADTGEKID.MengePatient.Patient patient, MappingStatistics statistics) {
+    // Meldungen dropped before the patient turns out to be unmappable are not counted on their own
+    var patientStatistics = new MappingStatistics();
+    var mappedPatient = patientMapper.mapOutcome(patient, patientStatistics);
+    if (!mappedPatient.isMapped()) {
+      statistics.drop(DropReason.UNMAPPABLE_PATIENT, patient.getMengeMeldung().getMeldung().size());
+      return mappedPatient;
+    }
+    statistics.addAll(patientStatistics);
+
+    var mengeMeldung = mappedPatient.orElseThrow().getMengeMeldung();
+    if (ignoreUnmappable && (null == mengeMeldung || mengeMeldung.getMeldung().isEmpty())) {
+      return MappingOutcome.rejected(
+          DropReason.NO_MAPPABLE_MELDUNG, null, "Patient has no mappable Meldung");
+    }
+    statistics.map(mappedPatient.meldungen());
+    return mappedPatient;
+  }
+
+  private List<OBDS.MengePatient.Patient> mapPatients(
+      List<ADTGEKID.MengePatient.Patient> patients, MappingStatistics statistics) {
+    if (null == executor) {
+      return patients.stream()
+          .map(patient -> mapPatient(patient, statistics))
+          .filter(Optional::isPresent)
+          .map(Optional::get)
+          .toList();
+    }
+
+    var futures =
+        patients.stream()
+            .map(
+                patient ->
+                    CompletableFuture.supplyAsync(
+                        () -> {
+                          // Statistics are not thread-safe - each patient counts on its own
+                          var patientStatistics = new MappingStatistics();
+                          return new MappedPatient(
+                              mapPatient(patient, patientStatistics), patientStatistics);
+                        },
+                        executor))
+            .toList();
+    // Results are collected in input order - the first failing patient is reported, just like
+    // mapping patients one after the other
+    var result = new ArrayList<OBDS.MengePatient.Patient>(patients.size());
+    try {
+      for (var future : futures) {
+        var mappedPatient = future.join();
+        statistics.addAll(mappedPatient.statistics());
+        mappedPatient.patient().ifPresent(result::add);
+      }
+    } catch (CompletionException e) {
+      futures.forEach(future -> future.cancel(false));
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    return result;
+  }
+
+  private record MappedPatient(
+      Optional<OBDS.MengePatient.Patient> patient, MappingStatistics statistics) {}
+
+  /**
+   * Maps ADT_GEKID from given input stream and writes oBDS into given output stream one patient at
+   * a time. Unless disabled, input and output are validated while they are read and written. If a
+   * patient shard is configured and none of the patients belongs to it, nothing is written.
+   *
+   * <p>The Meldedatum is taken from the first patient or, if it does not provide one, from {@link
+   * #fallbackMeldedatum()}. This differs from {@link #map(ADTGEKID)}, which takes it from the first
+   * patient providing one and leaves it unset if no patient does. If the first patient does not
+   * provide a Meldedatum, the written document therefore depends on the current date.
+   *
+   * <p>If an exception is thrown, the output stream contains an incomplete document, which has to
+   * be discarded.
+   *
+   * @param inputStream The input stream containing an ADT_GEKID document
+   * @param outputStream The output stream to write the oBDS document into
+   * @throws IOException if the input cannot be read or the output cannot be written
+   */
+  public void writeMappedXml(InputStream inputStream, OutputStream outputStream)
+      throws IOException {
+    try (var reader = adtGekidReader(inputStream);
+        var writer = obdsWriter(outputStream)) {
+      writeMapped(reader, writer);
+    }
+  }
+
+  /**
+   * Maps all remaining patients of given reader and writes them into shards of oBDS documents. Use
+   * {@link ShardedObdsWriter#close()} to close the shards afterward. No shard is written if none of
+   * the patients passes the reader's patient shard.
+   *
+   * @param reader The reader positioned at the first patient
+   * @param writer The writer to write all shards using
+   * @throws IOException if the input cannot be read or the output cannot be written
+   * @since 0.2.0
+   */
+  public void writeMappedXml(AdtGekidReader reader, ShardedObdsWriter writer) throws IOException {
+    writeMapped(reader, writer);
+  }
+
+  private void writeMapped(AdtGekidReader reader, PatientWriter writer) throws IOException {
+    // The Meldedatum precedes Menge_Patient and is taken from the first patient - only this patient
+    // is held back until the header has been written. Unlike map(), later patients are not
+    // considered and the current date is used as fallback.
+    var first = reader.hasNext() ? reader.next() : null;
+    if (null == first && reader.isEmptyShard()) {
+      return;
+    }
+    var meldedatum =
+        null == first ? null : mapMeldedatum(first).orElseGet(ObdsMapper::fallbackMeldedatum);
+
+    writer.writeHeader(mapAbsender(reader.getAbsender()), meldedatum);
+
+    if (null != first) {
+      writeMappedPatient(writer, first);
+    }
+    while (reader.hasNext()) {
+      writeMappedPatient(writer, reader.next());
+    }
+
+    writer.writeFooter(mapMengeMelder(reader.getMengeMelder()));
+  }
+
+  private void writeMappedPatient(PatientWriter writer, ADTGEKID.MengePatient.Patient patient)
+      throws IOException {
+    var mappedPatient = mapPatient(patient);
+    if (mappedPatient.isPresent()) {
+      writer.writePatient(mappedPatient.get());
+    }
   }
 
   public <T> T readValue(String str, Class<T> clazz) throws JsonProcessingException {
-    if (!this.disableSchemaValidation && ADTGEKID.class == clazz) {
-      SchemaValidator.isValid(str, SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3);
-    } else if (!this.disableSchemaValidation && OBDS.class == clazz) {
-      SchemaValidator.isValid(str, SchemaValidator.SchemaVersion.OBDS_3_0_4);
+    try {
+      return readValue(
+          XML_MAPPER.getFactory().getXMLInputFactory().createXMLStreamReader(new StringReader(str)),
+          clazz);
+    } catch (JsonProcessingException e) {
+      throw e;
+    } catch (XMLStreamException e) {
+      throw new JsonParseException(null, e.getMessage(), e);
+    } catch (IOException e) {
+      throw JsonMappingException.fromUnexpectedIOE(e);
     }
+  }
 
-    if (clazz == ADTGEKID.class || clazz == OBDS.class) {
-      return XML_MAPPER.readValue(str, clazz);
+  /**
+   * Reads ADT_GEKID or oBDS from given input stream. Unless disabled, the document is validated
+   * while it is parsed, so it is read only once.
+   *
+   * @param inputStream The input stream containing the document
+   * @param clazz The class of the document, either {@link ADTGEKID} or {@link OBDS}
+   * @return the read document
+   * @throws IOException if the document cannot be read
+   * @throws SchemaValidatorException if the document is not valid
+   * @since 0.2.0
+   */
+  public <T> T readValue(InputStream inputStream, Class<T> clazz) throws IOException {
+    try {
+      return readValue(
+          XML_MAPPER.getFactory().getXMLInputFactory().createXMLStreamReader(inputStream), clazz);
+    } catch (XMLStreamException e) {
+      throw new JsonParseException(null, e.getMessage(), e);
+    }
+  }
+
+  private <T> T readValue(XMLStreamReader streamReader, Class<T> clazz)
+      throws IOException, XMLStreamException {
+    if (clazz != ADTGEKID.class && clazz != OBDS.class) {
+      throw new IllegalArgumentException("Allowed classes are ADTGEKID and OBDS");
+    }
+
+    if (ADTGEKID.class == clazz && !this.disableSchemaValidation && this.ignoreInvalidPatients) {
+      return clazz.cast(readValidPatients(streamReader));
+    }
+
+    if (!this.disableSchemaValidation) {
+      // Validation uses the events consumed by the mapper - no need to parse the document twice
+      streamReader =
+          new ValidatingStreamReader(
+              streamReader,
+              ADTGEKID.class == clazz
+                  ? SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3
+                  : SchemaValidator.SchemaVersion.OBDS_3_0_4);
+    }
+
+    try {
+      streamReader.nextTag();
+      var result = XML_MAPPER.readValue(streamReader, clazz);
+      // Read the remaining document, the end of the document is validated as well
+      while (streamReader.hasNext()) {
+        streamReader.next();
+      }
+      return result;
+    } catch (IOException e) {
+      SchemaValidatorException.rethrowIfCause(e);
+      throw e;
+    } finally {
+      streamReader.close();
+    }
+  }
+
+  private ADTGEKID readValidPatients(XMLStreamReader streamReader) throws IOException {
+    try (var reader = new AdtGekidReader(streamReader, null, true, true)) {
+      return reader.readAll();
+    }
+  }
+
+  /**
+   * Creates a reader binding one ADT_GEKID patient at a time from given input stream. Unless
+   * disabled, the input is validated while it is read. If a patient shard is configured, only
+   * patients of this shard are read.
+   *
+   * @param inputStream The input stream containing an ADT_GEKID document
+   * @return the reader positioned at the first patient
+   * @throws IOException if the header of the document cannot be read
+   */
+  public AdtGekidReader adtGekidReader(InputStream inputStream) throws IOException {
+    try {
+      return new AdtGekidReader(
+          XML_MAPPER.getFactory().getXMLInputFactory().createXMLStreamReader(inputStream),
+          inputStream,
+          !disableSchemaValidation,
+          ignoreInvalidPatients,
+          null == patientShard ? null : patientShard::includes);
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read ADT_GEKID document", e);
+    }
+  }
+
+  /**
+   * Creates a writer serializing one oBDS patient at a time into given output stream. Unless
+   * disabled, the output is validated while it is written.
+   *
+   * @param outputStream The output stream to write the oBDS document into
+   * @return the writer
+   * @throws IOException if the writer cannot be created
+   */
+  public ObdsWriter obdsWriter(OutputStream outputStream) throws IOException {
+    return new ObdsWriter(outputStream, !disableSchemaValidation, ignoreInvalidPatients);
+  }
+
+  /**
+   * Creates a writer splitting oBDS patients into several documents. Unless disabled, each document
+   * is validated while it is written.
+   *
+   * @param shardOutput Opens the output stream of each document
+   * @param maxPatients The maximum number of patients of a document - unlimited if 0
+   * @param maxBytes The size in bytes after which a document is completed - unlimited if 0
+   * @return the writer
+   * @since 0.2.0
+   */
+  public ShardedObdsWriter shardedObdsWriter(
+      ShardedObdsWriter.ShardOutput shardOutput, int maxPatients, long maxBytes) {
+    return shardedObdsWriter(shardOutput, maxPatients, maxBytes, null);
+  }
+
+  /**
+   * Creates a writer splitting oBDS patients into several documents. If Menge_Melder is given, each
+   * document is completed and closed as soon as it is full, otherwise full documents are spooled
+   * into temporary files until Menge_Melder has been read. Unless disabled, each document is
+   * validated while it is written.
+   *
+   * @param shardOutput Opens the output stream of each document
+   * @param maxPatients The maximum number of patients of a document - unlimited if 0
+   * @param maxBytes The size in bytes after which a document is completed - unlimited if 0
+   * @param mengeMelder The mapped Menge_Melder of all documents - unknown if <code>null</code>
+   * @return the writer
+   * @see #readMappedMengeMelder(InputStream)
+   * @since 0.2.0
+   */
+  public ShardedObdsWriter shardedObdsWriter(
+      ShardedObdsWriter.ShardOutput shardOutput,
+      int maxPatients,
+      long maxBytes,
+      OBDS.MengeMelder mengeMelder) {
+    return new ShardedObdsWriter(
+        shardOutput,
+        maxPatients,
+        maxBytes,
+        !disableSchemaValidation,
+        ignoreInvalidPatients,
+        mengeMelder);
+  }
+
+  /**
+   * Reads the Menge_Melder of an ADT_GEKID document and maps it. Patients are skipped without
+   * binding or validating them.
+   *
+   * @param inputStream The input stream containing an ADT_GEKID document
+   * @return the mapped Menge_Melder or <code>null</code> if there is no Menge_Melder
+   * @throws IOException if the document cannot be read
+   * @since 0.2.0
+   */
+  public OBDS.MengeMelder readMappedMengeMelder(InputStream inputStream) throws IOException {
+    try (var reader =
+        new AdtGekidReader(
+            XML_MAPPER.getFactory().getXMLInputFactory().createXMLStreamReader(inputStream),
+            inputStream,
+            false,
+            false,
+            patientId -> false)) {
+      while (reader.hasNext()) {
+        reader.next();
+      }
+      var mengeMelder = reader.getMengeMelder();
+      return null == mengeMelder ? null : mapMengeMelder(mengeMelder);
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read ADT_GEKID document", e);
+    }
+  }
+
+  /**
+   * Merges the oBDS documents converted from all shards of an ADT_GEKID document into one document,
+   * which is the same as if the ADT_GEKID document had been converted at once. The ADT_GEKID
+   * document is read again to restore the order of patients, but patients are not bound. Unless
+   * disabled, the output is validated while it is written.
+   *
+   * @param adtGekid The input stream containing the ADT_GEKID document all shards were read from
+   * @param shards The input streams containing the oBDS documents of all shards, ordered by shard -
+   *     the input stream of a shard without patients is empty
+   * @param outputStream The output stream to write the merged oBDS document into
+   * @throws IOException if an input cannot be read, the shards do not belong to the ADT_GEKID
+   *     document or the output cannot be written
+   * @see PatientShard
+   * @since 0.2.0
+   */
+  public void mergeShards(InputStream adtGekid, List<InputStream> shards, OutputStream outputStream)
+      throws IOException {
+    try (var writer = obdsWriter(outputStream)) {
+      ShardMerger.merge(adtGekid, shards, writer);
+    }
+  }
+
+  /**
+   * Shuts down the thread pool owned by this mapper, if built with a parallelism greater than 1.
+   * Mappings already started are completed, but the mapper cannot map patients concurrently
+   * afterward. An executor set using {@link Builder#executor(Executor)} is not shut down.
+   *
+   * @since 0.2.0
+   */
+  @Override
+  public void close() {
+    if (null != ownedExecutor) {
+      ownedExecutor.shutdown();
     }
-    throw new IllegalArgumentException("Allowed classes are ADTGEKID and OBDS");
   }
 
   public String writeMappedXmlString(ADTGEKID obj) throws JsonProcessingException {
@@ -155,25 +613,27 @@ public class ObdsMapper {
   }
 
   public String writeXmlString(OBDS obj) throws JsonProcessingException {
-    var xmlString = XML_MAPPER.writeValueAsString(obj);
-    var result =
-        String.format(
-            "<?xml version=\"1.0\" encoding=\"utf-8\" ?>%s%s",
-            System.lineSeparator(),
-            xmlString.replace("<oBDS ", "<oBDS xmlns=\"http://www.basisdatensatz.de/oBDS/XML\" "));
-
-    if (this.disableSchemaValidation
-        || SchemaValidator.isValid(result, SchemaValidator.SchemaVersion.OBDS_3_0_4)) {
-      return result;
+    // The document is validated while it is written - no need to parse the result again
+    var outputStream = new ByteArrayOutputStream();
+    try (var writer = obdsWriter(outputStream)) {
+      writer.write(obj);
+    } catch (JsonProcessingException e) {
+      throw e;
+    } catch (IOException e) {
+      throw JsonMappingException.fromUnexpectedIOE(e);
     }
-
-    throw new SchemaValidatorException("Cannot validate result using oBDS schema");
+    return outputStream.toString(StandardCharsets.UTF_8);
   }
 
   public static class Builder {
     private boolean ignoreUnmappable;
     private boolean fixMissingId;
+    private boolean legacyMeldungIdHash;
     private boolean disableSchemaValidation = false;
+    private boolean ignoreInvalidPatients;
+    private Executor executor;
+    private int parallelism = 1;
+    private PatientShard patientShard;
 
     public Builder ignoreUnmappable(boolean ignoreUnmappable) {
       this.ignoreUnmappable = ignoreUnmappable;
@@ -185,10 +645,24 @@ public class ObdsMapper {
       return this;
     }
 
+    /**
+     * This generates a missing Meldung_ID from the XML serialization of the Meldung, as done up to
+     * version 0.1.x, instead of its canonical content. Use this to keep IDs generated by previous
+     * versions.
+     *
+     * @param legacyMeldungIdHash Whether to use the previous hash or not
+     * @return the configured builder
+     * @since 0.2.0
+     */
+    public Builder legacyMeldungIdHash(boolean legacyMeldungIdHash) {
+      this.legacyMeldungIdHash = legacyMeldungIdHash;
+      return this;
+    }
+
     /**
      * This disables schema validation on input and output
      *
-     * @param disableSchemaValidation Weather to disable schema validation or not
+     * @param disableSchemaValidation Whether to disable schema validation or not
      * @return the configured builder
      */
     public Builder disableSchemaValidation(boolean disableSchemaValidation) {
@@ -205,8 +679,77 @@ public class ObdsMapper {
       return disableSchemaValidation(true);
     }
 
+    /**
+     * This skips patients not valid against the schema instead of failing the whole document.
+     * Skipped patients are reported by {@link AdtGekidReader#getInvalidPatients()} and {@link
+     * ObdsWriter#getInvalidPatients()}. Has no effect if schema validation is disabled.
+     *
+     * @param ignoreInvalidPatients Whether to ignore invalid patients or not
+     * @return the configured builder
+     * @since 0.2.0
+     */
+    public Builder ignoreInvalidPatients(boolean ignoreInvalidPatients) {
+      this.ignoreInvalidPatients = ignoreInvalidPatients;
+      return this;
+    }
+
+    /**
+     * This maps the patients of a document concurrently using given executor, e.g. a {@link
+     * ForkJoinPool} or an executor starting a virtual thread per task. Mapped patients keep their
+     * input order. The executor is not shut down by the mapper.
+     *
+     * @param executor The executor to map patients with or <code>null</code> to map patients one
+     *     after the other
+     * @return the configured builder
+     * @since 0.2.0
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * This maps the patients of a document concurrently using a {@link ForkJoinPool} with given
+     * parallelism. Mapped patients keep their input order. Has no effect if an executor is set. The
+     * pool is owned by the built mapper - use {@link ObdsMapper#close()} to shut it down.
+     *
+     * @param parallelism The number of patients to map concurrently - 1 maps patients one after the
+     *     other
+     * @return the configured builder
+     * @since 0.2.0
+     */
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be at least 1");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * This reads only the patients of given shard of a document, so a document can be converted on
+     * several nodes. Patients of other shards are skipped without binding them. Merge the outputs
+     * of all shards using {@link ObdsMapper#mergeShards(InputStream, List, OutputStream)}.
+     *
+     * @param patientShard The shard to read or <code>null</code> to read all patients
+     * @return the configured builder
+     * @since 0.2.0
+     */
+    public Builder patientShard(PatientShard patientShard) {
+      this.patientShard = patientShard;
+      return this;
+    }
+
     public ObdsMapper build() {
-      return new ObdsMapper(ignoreUnmappable, fixMissingId, disableSchemaValidation);
+      return new ObdsMapper(
+          ignoreUnmappable,
+          fixMissingId,
+          legacyMeldungIdHash,
+          disableSchemaValidation,
+          ignoreInvalidPatients,
+          executor,
+          null == executor && parallelism > 1 ? new ForkJoinPool(parallelism) : null,
+          patientShard);
     }
   }
 }
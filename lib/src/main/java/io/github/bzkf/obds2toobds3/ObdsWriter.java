@@ -0,0 +1,382 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import de.basisdatensatz.obds.v3.AbsenderTyp;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import org.codehaus.stax2.XMLStreamWriter2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Writer for oBDS files serializing one patient at a time into an output stream.
+ *
+ * <p>The written document is equal to the result of {@link ObdsMapper#writeXmlString(OBDS)}, but
+ * only the current patient is held in memory. Elements have to be written in document order:
+ * header, patients and finally Menge_Melder.
+ *
+ * <p>If enabled, the document is validated against the oBDS schema while it is written. A {@link
+ * SchemaValidatorException} is thrown as soon as invalid content is written. The output written up
+ * to then is an incomplete document and has to be discarded by the caller. If invalid patients are
+ * ignored, each patient is buffered until it has been validated and invalid patients are dropped
+ * and reported by {@link #getInvalidPatients()} instead. Identity constraints, such as unique IDs,
+ * still take dropped patients into account.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @since 0.2.0
+ */
+public class ObdsWriter implements PatientWriter, Closeable {
+
+  static final String OBDS_NAMESPACE = "http://www.basisdatensatz.de/oBDS/XML";
+  static final String OBDS_SCHEMA_VERSION = "3.0.4";
+
+  private static final Logger LOG = LoggerFactory.getLogger(ObdsWriter.class);
+
+  private enum State {
+    INITIAL,
+    PATIENTS,
+    FINISHED
+  }
+
+  private final OutputStream outputStream;
+  private final PatientBuffer patientBuffer;
+  private final XMLStreamWriter2 streamWriter;
+  private final ToXmlGenerator generator;
+  private final ValidationErrorCollector errorCollector;
+  private final List<PatientValidationError> invalidPatients = new ArrayList<>();
+
+  private State state = State.INITIAL;
+  private boolean mengePatient;
+
+  ObdsWriter(OutputStream outputStream, boolean validate) throws IOException {
+    this(outputStream, validate, false);
+  }
+
+  ObdsWriter(OutputStream outputStream, boolean validate, boolean ignoreInvalidPatients)
+      throws IOException {
+    this.errorCollector = validate && ignoreInvalidPatients ? new ValidationErrorCollector() : null;
+    // Invalid patients are only detected after they have been written - keep them back until then
+    this.patientBuffer = null == errorCollector ? null : new PatientBuffer(outputStream);
+    this.outputStream = null == patientBuffer ? outputStream : patientBuffer;
+    try {
+      var xmlStreamWriter =
+          (XMLStreamWriter2)
+              ObdsMapper.XML_MAPPER
+                  .getFactory()
+                  .getXMLOutputFactory()
+                  .createXMLStreamWriter(this.outputStream, StandardCharsets.UTF_8.name());
+      this.streamWriter =
+          validate
+              ? new ValidatingStreamWriter(
+                  xmlStreamWriter, SchemaValidator.SchemaVersion.OBDS_3_0_4, errorCollector)
+              : xmlStreamWriter;
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot create oBDS writer", e);
+    }
+    this.generator = ObdsMapper.XML_MAPPER.getFactory().createGenerator(streamWriter);
+    this.generator.setPrettyPrinter(
+        ObdsMapper.XML_MAPPER.getSerializationConfig().constructDefaultPrettyPrinter());
+    this.generator.initGenerator();
+  }
+
+  /**
+   * Writes the root element, Absender and Meldedatum and opens Menge_Patient
+   *
+   * @param absender The Absender of the document
+   * @param meldedatum The Meldedatum of the document - not written if <code>null</code>
+   * @throws IOException if the header cannot be written
+   */
+  @Override
+  public void writeHeader(AbsenderTyp absender, XMLGregorianCalendar meldedatum)
+      throws IOException {
+    writeHeader(OBDS_SCHEMA_VERSION, absender, meldedatum, true);
+  }
+
+  /**
+   * Writes a complete oBDS document. Menge_Patient is not written if it is <code>null</code>.
+   *
+   * @param obds The oBDS document
+   * @throws IOException if the document cannot be written
+   */
+  public void write(OBDS obds) throws IOException {
+    writeHeader(
+        obds.getSchemaVersion(),
+        obds.getAbsender(),
+        obds.getMeldedatum(),
+        null != obds.getMengePatient());
+    if (null != obds.getMengePatient()) {
+      for (var patient : obds.getMengePatient().getPatient()) {
+        writePatient(patient);
+      }
+    }
+    writeFooter(obds.getMengeMelder());
+  }
+
+  private void writeHeader(
+      String schemaVersion,
+      AbsenderTyp absender,
+      XMLGregorianCalendar meldedatum,
+      boolean withMengePatient)
+      throws IOException {
+    if (state != State.INITIAL) {
+      throw new IllegalStateException("Header has already been written");
+    }
+
+    // Nothing is written before the header, so a writer closed without a document leaves no output
+    outputStream.write(
+        String.format("<?xml version=\"1.0\" encoding=\"utf-8\" ?>%s", System.lineSeparator())
+            .getBytes(StandardCharsets.UTF_8));
+
+    // The mapped classes do not carry the namespace - write it like writeXmlString() does
+    generator.setNextName(new QName("oBDS"));
+    generator.writeStartObject();
+    writeAttribute("xmlns", OBDS_NAMESPACE);
+    writeAttribute("Schema_Version", schemaVersion);
+
+    writeElement("Absender", absender);
+    writeElement("Meldedatum", meldedatum);
+
+    if (withMengePatient) {
+      generator.writeFieldName("Menge_Patient");
+      generator.writeStartObject();
+    }
+    mengePatient = withMengePatient;
+    throwDocumentErrors();
+    state = State.PATIENTS;
+  }
+
+  /**
+   * Writes a single patient into Menge_Patient
+   *
+   * @param patient The mapped patient
+   * @throws IOException if the patient cannot be written
+   */
+  @Override
+  public void writePatient(OBDS.MengePatient.Patient patient) throws IOException {
+    if (state != State.PATIENTS || !mengePatient) {
+      throw new IllegalStateException("Patients can only be written after the header");
+    }
+    if (null == errorCollector) {
+      writeElement("Patient", patient);
+      return;
+    }
+
+    try {
+      // Completes pending start tags, so only the patient itself is buffered
+      streamWriter.writeCharacters("");
+      generator.flush();
+      patientBuffer.begin();
+      writeElement("Patient", patient);
+      generator.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot write patient", e);
+    }
+
+    var errors = errorCollector.drain();
+    if (errors.isEmpty()) {
+      patientBuffer.commit();
+      return;
+    }
+    patientBuffer.discard();
+    reportInvalidPatient(patient, errors.getFirst());
+  }
+
+  /**
+   * Returns the patients dropped so far, because they are not valid. Patients are only dropped if
+   * invalid patients are ignored.
+   *
+   * @return the dropped patients
+   * @since 0.2.0
+   */
+  @Override
+  public List<PatientValidationError> getInvalidPatients() {
+    return List.copyOf(invalidPatients);
+  }
+
+  int getInvalidPatientCount() {
+    return invalidPatients.size();
+  }
+
+  /**
+   * Flushes all patients written so far into the output stream
+   *
+   * @throws IOException if the output cannot be written
+   */
+  void flush() throws IOException {
+    generator.flush();
+  }
+
+  /**
+   * Closes Menge_Patient, writes Menge_Melder and closes the document
+   *
+   * @param mengeMelder The mapped Menge_Melder - not written if <code>null</code>
+   * @throws IOException if the document cannot be finished
+   */
+  @Override
+  public void writeFooter(OBDS.MengeMelder mengeMelder) throws IOException {
+    if (state != State.PATIENTS) {
+      throw new IllegalStateException("Footer can only be written after the header");
+    }
+    if (mengePatient) {
+      generator.writeEndObject();
+    }
+    writeElement("Menge_Melder", mengeMelder);
+    generator.writeEndObject();
+    generator.flush();
+    throwDocumentErrors();
+    state = State.FINISHED;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (state == State.FINISHED) {
+        generator.close();
+      } else {
+        // Closing the generator would close all open elements - an unfinished document must not
+        // look complete
+        generator.flush();
+      }
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  private void reportInvalidPatient(OBDS.MengePatient.Patient patient, SAXParseException error) {
+    LOG.warn(
+        "Dropping invalid patient '{}' at line {}, column {}: {}",
+        patient.getPatientID(),
+        error.getLineNumber(),
+        error.getColumnNumber(),
+        error.getMessage());
+    invalidPatients.add(
+        new PatientValidationError(
+            patient.getPatientID(),
+            SchemaValidator.SchemaVersion.OBDS_3_0_4,
+            error.getLineNumber(),
+            error.getColumnNumber(),
+            error.getMessage()));
+  }
+
+  private void throwDocumentErrors() {
+    // Errors outside of patients cannot be dropped
+    if (null != errorCollector) {
+      errorCollector.throwIfAny();
+    }
+  }
+
+  private void writeAttribute(String name, String value) throws IOException {
+    if (null == value) {
+      return;
+    }
+    generator.setNextIsAttribute(true);
+    generator.writeFieldName(name);
+    generator.writeString(value);
+    generator.setNextIsAttribute(false);
+  }
+
+  private void writeElement(String name, Object value) throws IOException {
+    if (null == value) {
+      return;
+    }
+    generator.writeFieldName(name);
+    try {
+      ObdsMapper.XML_MAPPER.writeValue(generator, value);
+    } catch (IOException e) {
+      SchemaValidatorException.rethrowIfCause(e);
+      throw e;
+    }
+  }
+
+  /** Output stream holding back the bytes of the current patient until it is committed */
+  private static class PatientBuffer extends OutputStream {
+    private final OutputStream target;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private boolean buffering;
+
+    private PatientBuffer(OutputStream target) {
+      this.target = target;
+    }
+
+    private void begin() {
+      buffer.reset();
+      buffering = true;
+    }
+
+    private void commit() throws IOException {
+      buffering = false;
+      buffer.writeTo(target);
+      buffer.reset();
+    }
+
+    private void discard() {
+      buffering = false;
+      buffer.reset();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (buffering) {
+        buffer.write(b);
+      } else {
+        target.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (buffering) {
+        buffer.write(b, off, len);
+      } else {
+        target.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (!buffering) {
+        target.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      target.close();
+    }
+  }
+}
@@ -24,6 +24,14 @@ public class OpMapper {
 
   private static OPTyp mapToOPType(OP source) {
     MDC.put("OPID", source.getOPID());
+    try {
+      return mapOp(source);
+    } finally {
+      MDC.remove("OPID");
+    }
+  }
+
+  private static OPTyp mapOp(OP source) {
     var opTyp = new OPTyp();
     opTyp.setOPID(source.getOPID());
     opTyp.setIntention(source.getOPIntention());
@@ -86,8 +94,6 @@ public class OpMapper {
       opTyp.setModulProstata(ModulMapper.map(source.getModulProstata()));
     }
 
-    MDC.remove("OPID");
-
     return opTyp;
   }
 
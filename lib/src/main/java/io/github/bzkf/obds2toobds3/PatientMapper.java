@@ -37,11 +37,23 @@ class PatientMapper {
 
   private final MeldungMapper meldungMapper;
 
-  PatientMapper(boolean ignoreUnmappableMessages, boolean fixMissingId) {
-    this.meldungMapper = new MeldungMapper(ignoreUnmappableMessages, fixMissingId);
+  PatientMapper(
+      boolean ignoreUnmappableMessages, boolean fixMissingId, boolean legacyMeldungIdHash) {
+    this.meldungMapper =
+        new MeldungMapper(ignoreUnmappableMessages, fixMissingId, legacyMeldungIdHash);
   }
 
   public OBDS.MengePatient.Patient map(ADTGEKID.MengePatient.Patient source) {
+    return map(source, new MappingStatistics());
+  }
+
+  OBDS.MengePatient.Patient map(
+      ADTGEKID.MengePatient.Patient source, MappingStatistics statistics) {
+    return mapOutcome(source, statistics).orElseThrow();
+  }
+
+  MappingOutcome<OBDS.MengePatient.Patient> mapOutcome(
+      ADTGEKID.MengePatient.Patient source, MappingStatistics statistics) {
     if (null == source) {
       throw new IllegalArgumentException("Source cannot be null");
     }
@@ -55,17 +67,19 @@ class PatientMapper {
     patient.setAnmerkung(source.getAnmerkung());
     patient.setPatientenStammdaten(getMappedStammdaten(stammdaten));
 
-    // Meldungen
-    var mappedMeldungen =
-        source.getMengeMeldung().getMeldung().stream()
-            .map(meldungMapper::map)
-            .flatMap(List::stream)
-            .toList();
-
+    // Meldungen - eine nicht mappbare Meldung verwirft den ganzen Patienten
     patient.setMengeMeldung(new OBDS.MengePatient.Patient.MengeMeldung());
-    patient.getMengeMeldung().getMeldung().addAll(mappedMeldungen);
+    var meldungen = 0L;
+    for (var meldung : source.getMengeMeldung().getMeldung()) {
+      var mappedMeldungen = meldungMapper.mapOutcome(meldung, statistics);
+      if (!mappedMeldungen.isMapped()) {
+        return MappingOutcome.rejected(mappedMeldungen.rejection().orElseThrow());
+      }
+      patient.getMengeMeldung().getMeldung().addAll(mappedMeldungen.orElseThrow());
+      meldungen += mappedMeldungen.orElseThrow().size();
+    }
 
-    return patient;
+    return MappingOutcome.mapped(patient, meldungen);
   }
 
   /** If */
@@ -0,0 +1,97 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+/**
+ * Slice of the patients of a document, used to convert one document on several nodes. Each node
+ * converts the patients of one shard, the outputs are merged using {@link
+ * ObdsMapper#mergeShards(java.io.InputStream, java.util.List, java.io.OutputStream)}.
+ *
+ * <p>A patient is assigned to a shard by the Murmur3 hash of its Patient_ID, so the assignment does
+ * not depend on the position of the patient, the JVM or the version of this library. Patients with
+ * the same Patient_ID are always assigned to the same shard.
+ *
+ * @param index The number of the shard, starting at 1
+ * @param count The number of shards
+ * @since 0.2.0
+ */
+public record PatientShard(int index, int count) {
+
+  public PatientShard {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException(
+          String.format("Invalid shard %d/%d - expected 1 to %d", index, count, count));
+    }
+  }
+
+  /**
+   * Parses a shard given as <code>index/count</code>, e.g. <code>2/4</code>
+   *
+   * @param value The shard
+   * @return the parsed shard
+   * @throws IllegalArgumentException if the value is not a valid shard
+   */
+  public static PatientShard parse(String value) {
+    var parts = Objects.requireNonNull(value).split("/", -1);
+    if (parts.length != 2) {
+      throw new IllegalArgumentException("Invalid shard '" + value + "' - expected index/count");
+    }
+    try {
+      return new PatientShard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid shard '" + value + "' - expected index/count");
+    }
+  }
+
+  /**
+   * Returns the number of the shard given patient is assigned to
+   *
+   * @param patientId The Patient_ID - a missing ID is treated like an empty ID
+   * @param count The number of shards
+   * @return the number of the shard, starting at 1
+   */
+  public static int of(String patientId, int count) {
+    var bytes = (null == patientId ? "" : patientId).getBytes(StandardCharsets.UTF_8);
+    return Math.floorMod(MurmurHash3.hash32x86(bytes), count) + 1;
+  }
+
+  /**
+   * Returns true if given patient is assigned to this shard
+   *
+   * @param patientId The Patient_ID - a missing ID is treated like an empty ID
+   * @return true if the patient is assigned to this shard
+   */
+  public boolean includes(String patientId) {
+    return of(patientId, count) == index;
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
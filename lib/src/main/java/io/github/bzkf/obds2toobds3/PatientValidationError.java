@@ -0,0 +1,43 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+/**
+ * Schema violation of a single patient, which has been skipped.
+ *
+ * @param patientId The ID of the patient or <code>null</code> if it could not be read
+ * @param schemaVersion The schema the patient has been validated against - ADT_GEKID for input,
+ *     oBDS for output
+ * @param lineNumber The line of the first violation or -1 if unknown
+ * @param columnNumber The column of the first violation or -1 if unknown
+ * @param message The message describing the first violation
+ * @since 0.2.0
+ */
+public record PatientValidationError(
+    String patientId,
+    SchemaValidator.SchemaVersion schemaVersion,
+    int lineNumber,
+    int columnNumber,
+    String message) {}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v3.AbsenderTyp;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.IOException;
+import java.util.List;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/** Writer serializing mapped patients into oBDS: header, patients and finally Menge_Melder. */
+interface PatientWriter {
+
+  void writeHeader(AbsenderTyp absender, XMLGregorianCalendar meldedatum) throws IOException;
+
+  void writePatient(OBDS.MengePatient.Patient patient) throws IOException;
+
+  void writeFooter(OBDS.MengeMelder mengeMelder) throws IOException;
+
+  List<PatientValidationError> getInvalidPatients();
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the patterns of named simple types defined in a schema.
+ *
+ * <p>The patterns are generated from the schema files at build time by the <code>xsd2patterns
+ * </code> task, so no schema file is parsed at runtime. Compiled patterns and character sanitizers
+ * are looked up by the name of the datatype.
+ */
+class SchemaPatterns {
+
+  private static final Map<SchemaValidator.SchemaVersion, SchemaPatterns> REGISTRIES =
+      new ConcurrentHashMap<>();
+
+  private final Map<String, Pattern> patterns;
+  private final Map<String, Pattern> disallowedCharacters;
+
+  private SchemaPatterns(Map<String, Pattern> patterns, Map<String, Pattern> disallowedCharacters) {
+    this.patterns = patterns;
+    this.disallowedCharacters = disallowedCharacters;
+  }
+
+  /**
+   * Returns the patterns of given schema version
+   *
+   * @param schemaVersion The schema version
+   * @return the patterns - empty, if there is no schema file for given schema version
+   */
+  static SchemaPatterns of(SchemaValidator.SchemaVersion schemaVersion) {
+    return REGISTRIES.computeIfAbsent(
+        schemaVersion,
+        version ->
+            new SchemaPatterns(
+                SchemaPatternConstants.patterns(version),
+                SchemaPatternConstants.disallowedCharacters(version)));
+  }
+
+  /**
+   * Returns the pattern of given datatype
+   *
+   * @param datatypeName The name of the datatype
+   * @return the compiled pattern or an empty Optional if there is no such datatype with a pattern
+   */
+  Optional<Pattern> pattern(String datatypeName) {
+    return Optional.ofNullable(patterns.get(datatypeName));
+  }
+
+  /**
+   * Removes all characters not contained in the pattern of given datatype
+   *
+   * @param datatypeName The name of the datatype
+   * @param value The value to be sanitized
+   * @return the value without disallowed characters or an empty Optional if there is no such
+   *     datatype with a pattern
+   */
+  Optional<String> removeDisallowedCharacters(String datatypeName, String value) {
+    return Optional.ofNullable(disallowedCharacters.get(datatypeName))
+        .map(pattern -> pattern.matcher(value).replaceAll(""));
+  }
+}
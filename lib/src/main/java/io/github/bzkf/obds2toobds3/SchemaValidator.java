@@ -25,18 +25,18 @@
 package io.github.bzkf.obds2toobds3;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import org.xml.sax.SAXException;
+import javax.xml.validation.Validator;
 
 /**
  * Validator for ADT_GEKID or oBDS files
@@ -46,6 +46,13 @@ import org.xml.sax.SAXException;
  */
 public class SchemaValidator {
 
+  // Compiled schemas are thread-safe and can be shared
+  private static final Map<SchemaVersion, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+  // Validators are not thread-safe - each thread reuses its own validator per schema version
+  private static final ThreadLocal<Map<SchemaVersion, Validator>> VALIDATORS =
+      ThreadLocal.withInitial(() -> new EnumMap<>(SchemaVersion.class));
+
   /**
    * Validates xml string using given schema version
    *
@@ -56,26 +63,63 @@ public class SchemaValidator {
    */
   public static boolean isValid(String xmlString, SchemaVersion schemaVersion) {
     try {
+      validator(schemaVersion).validate(new StreamSource(new StringReader(xmlString)));
+    } catch (Exception e) {
+      throw new SchemaValidatorException("Cannot validate result using oBDS schema", e);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the compiled schema of given schema version. Each schema version is compiled once and
+   * shared afterwards.
+   *
+   * @param schemaVersion The schema version
+   * @return the compiled schema
+   * @throws SchemaValidatorException if the schema cannot be compiled
+   */
+  static Schema schema(SchemaVersion schemaVersion) {
+    return SCHEMAS.computeIfAbsent(schemaVersion, SchemaValidator::compileSchema);
+  }
+
+  /**
+   * Returns the validator of given schema version for the current thread
+   *
+   * @param schemaVersion The schema version
+   * @return the validator - must not be shared with other threads
+   */
+  static Validator validator(SchemaVersion schemaVersion) {
+    var validator =
+        VALIDATORS.get().computeIfAbsent(schemaVersion, version -> schema(version).newValidator());
+    validator.reset();
+    return validator;
+  }
+
+  private static Schema compileSchema(SchemaVersion schemaVersion) {
+    try (var schemaStream = schemaStream(schemaVersion)) {
       var factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
       // Prevent XXE: Disable DTDs and external entities
       factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
       factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
-      var schemaFile =
-          new StreamSource(
-              SchemaValidator.class
-                  .getClassLoader()
-                  .getResource(schemaVersion.getSchemaFile())
-                  .openStream());
-      var validator = factory.newSchema(schemaFile).newValidator();
-      validator.validate(new StreamSource(new StringReader(xmlString)));
+      return factory.newSchema(new StreamSource(schemaStream));
     } catch (Exception e) {
       throw new SchemaValidatorException("Cannot validate result using oBDS schema", e);
     }
-    return true;
+  }
+
+  private static InputStream schemaStream(SchemaVersion schemaVersion) throws IOException {
+    var schemaStream =
+        SchemaValidator.class.getClassLoader().getResourceAsStream(schemaVersion.getSchemaFile());
+    if (null == schemaStream) {
+      throw new IOException(
+          String.format("Schema file '%s' not found", schemaVersion.getSchemaFile()));
+    }
+    return schemaStream;
   }
 
   /**
-   * Returns regexp pattern of string based datatypes defined in given schema
+   * Returns regexp pattern of string based datatypes defined in given schema. The patterns are
+   * generated from the schema at build time.
    *
    * @param name The name of the datatype
    * @param schemaVersion The schema version
@@ -83,31 +127,7 @@ public class SchemaValidator {
    */
   public static Optional<Pattern> regexpPattern(
       String name, SchemaValidator.SchemaVersion schemaVersion) {
-    try {
-      final var documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-      final var schemaFile =
-          new StreamSource(
-              SchemaValidator.class
-                  .getClassLoader()
-                  .getResource(schemaVersion.getSchemaFile())
-                  .openStream());
-      final var doc = documentBuilder.parse(schemaFile.getInputStream());
-
-      final var expr =
-          XPathFactory.newInstance()
-              .newXPath()
-              .compile(
-                  String.format(
-                      "//*[local-name()='simpleType'][@name='%s']/*[local-name()='restriction']/*[local-name()='pattern']/@value",
-                      name));
-
-      return Optional.of(Pattern.compile(expr.evaluate(doc, XPathConstants.STRING).toString()));
-    } catch (XPathExpressionException
-        | ParserConfigurationException
-        | IOException
-        | SAXException e) {
-      return Optional.empty();
-    }
+    return SchemaPatterns.of(schemaVersion).pattern(name);
   }
 
   public enum SchemaVersion {
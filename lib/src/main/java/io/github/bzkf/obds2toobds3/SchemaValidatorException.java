@@ -32,4 +32,18 @@ public class SchemaValidatorException extends RuntimeException {
   public SchemaValidatorException(String message, Throwable cause) {
     super(message, cause);
   }
+
+  /**
+   * Rethrows a {@link SchemaValidatorException} if it is the cause of given exception. This unwraps
+   * validation errors wrapped by Jackson while reading or writing.
+   *
+   * @param e The exception thrown while reading or writing
+   */
+  static void rethrowIfCause(Throwable e) {
+    for (var cause = e; null != cause; cause = cause.getCause()) {
+      if (cause instanceof SchemaValidatorException validatorException) {
+        throw validatorException;
+      }
+    }
+  }
 }
@@ -0,0 +1,285 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v3.AbsenderTyp;
+import de.basisdatensatz.obds.v3.DatumTagOderMonatOderJahrOderNichtGenauTyp;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Merges the oBDS documents converted from the {@link PatientShard}s of one ADT_GEKID document into
+ * a single document.
+ *
+ * <p>The ADT_GEKID document is read again without binding it, to restore the order of the patients
+ * and the Meldedatum of the first patient. Therefore, the merged document is the same as if the
+ * ADT_GEKID document had been converted at once, regardless of the number of shards. Patients
+ * missing in their shard, e.g. because they have been dropped, are skipped. Absender and
+ * Menge_Melder are taken from the first shard containing patients, as all shards contain the same
+ * ones. A shard without any patients is written as an empty output, which is accepted here.
+ */
+final class ShardMerger {
+
+  private static final String PATIENT_ELEMENT = "Patient";
+  private static final String PATIENTEN_STAMMDATEN_ELEMENT = "Patienten_Stammdaten";
+  private static final String MENGE_PATIENT_ELEMENT = "Menge_Patient";
+  private static final String MENGE_MELDUNG_ELEMENT = "Menge_Meldung";
+  private static final String MELDEDATUM_ELEMENT = "Meldedatum";
+  private static final String ABSENDER_ELEMENT = "Absender";
+  private static final String MENGE_MELDER_ELEMENT = "Menge_Melder";
+  private static final String PATIENT_ID_ATTRIBUTE = "Patient_ID";
+
+  private ShardMerger() {}
+
+  static void merge(InputStream adtGekid, List<InputStream> shardInputs, ObdsWriter writer)
+      throws IOException {
+    if (shardInputs.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    var shards = new ArrayList<ShardReader>();
+    try (var input = new InputPatients(adtGekid)) {
+      for (var shardInput : shardInputs) {
+        shards.add(new ShardReader(shardInput));
+      }
+      merge(input, shards, writer);
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot merge shards", e);
+    } finally {
+      for (var shard : shards) {
+        shard.close();
+      }
+    }
+  }
+
+  private static void merge(InputPatients input, List<ShardReader> shards, ObdsWriter writer)
+      throws IOException, XMLStreamException {
+    var firstShard =
+        shards.stream()
+            .filter(shard -> !shard.empty)
+            .findFirst()
+            .orElseThrow(() -> new IOException("All shards are empty"));
+    var headerWritten = false;
+    while (input.hasNext()) {
+      var patientId = input.next();
+      if (!headerWritten) {
+        // Like the conversion, the Meldedatum is taken from the first patient
+        writer.writeHeader(
+            firstShard.absender,
+            null != input.meldedatum ? input.meldedatum : ObdsMapper.fallbackMeldedatum());
+        headerWritten = true;
+      }
+      var shard = shards.get(PatientShard.of(patientId, shards.size()) - 1);
+      var patient = shard.peek();
+      if (null != patient && Objects.equals(patientId, patient.getPatientID())) {
+        shard.take();
+        writer.writePatient(patient);
+      }
+    }
+    if (!headerWritten) {
+      writer.writeHeader(firstShard.absender, null);
+    }
+
+    for (int i = 0; i < shards.size(); i++) {
+      var patient = shards.get(i).peek();
+      if (null != patient) {
+        throw new IOException(
+            String.format(
+                "Patient '%s' of shard %d/%d is not part of the input in this order",
+                patient.getPatientID(), i + 1, shards.size()));
+      }
+    }
+    writer.writeFooter(firstShard.mengeMelder);
+  }
+
+  /**
+   * Reads the Patient_IDs of the ADT_GEKID document in order and the first Meldedatum, without
+   * binding any patient
+   */
+  private static class InputPatients implements Closeable {
+    private final InputStream inputStream;
+    private final XMLStreamReader streamReader;
+    private XMLGregorianCalendar meldedatum;
+    private boolean exhausted;
+
+    private InputPatients(InputStream inputStream) throws XMLStreamException {
+      this.inputStream = inputStream;
+      this.streamReader =
+          ObdsMapper.XML_MAPPER
+              .getFactory()
+              .getXMLInputFactory()
+              .createXMLStreamReader(inputStream);
+      while (!exhausted) {
+        if (!streamReader.hasNext()) {
+          exhausted = true;
+        } else if (streamReader.next() == XMLStreamConstants.START_ELEMENT
+            && MENGE_PATIENT_ELEMENT.equals(streamReader.getLocalName())) {
+          break;
+        }
+      }
+    }
+
+    private boolean hasNext() throws XMLStreamException {
+      if (exhausted) {
+        return false;
+      }
+      if (streamReader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+        exhausted = true;
+        return false;
+      }
+      return true;
+    }
+
+    /** Reads the current patient and returns its Patient_ID */
+    private String next() throws XMLStreamException {
+      String patientId = null;
+      var inMengeMeldung = false;
+      var depth = 1;
+      while (depth > 0) {
+        var event = streamReader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          var name = streamReader.getLocalName();
+          if (depth == 2) {
+            inMengeMeldung = MENGE_MELDUNG_ELEMENT.equals(name);
+            if (PATIENTEN_STAMMDATEN_ELEMENT.equals(name)) {
+              patientId = streamReader.getAttributeValue(null, PATIENT_ID_ATTRIBUTE);
+            }
+          } else if (depth == 4
+              && inMengeMeldung
+              && null == meldedatum
+              && MELDEDATUM_ELEMENT.equals(name)) {
+            // Same as ObdsMapper#mapMeldedatum(), reading the end element as well
+            meldedatum =
+                MapperUtils.mapDateString(streamReader.getElementText())
+                    .map(DatumTagOderMonatOderJahrOderNichtGenauTyp::getValue)
+                    .orElse(null);
+            depth--;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+      return patientId;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        streamReader.close();
+      } catch (XMLStreamException e) {
+        throw new IOException(e);
+      } finally {
+        inputStream.close();
+      }
+    }
+  }
+
+  /** Reads the patients of an oBDS document one at a time */
+  private static class ShardReader implements Closeable {
+    private final InputStream inputStream;
+    private final XMLStreamReader streamReader;
+    private final boolean empty;
+    private AbsenderTyp absender;
+    private OBDS.MengeMelder mengeMelder;
+    private OBDS.MengePatient.Patient nextPatient;
+    private boolean exhausted;
+
+    private ShardReader(InputStream inputStream) throws IOException, XMLStreamException {
+      var pushbackInputStream = new PushbackInputStream(inputStream);
+      this.inputStream = pushbackInputStream;
+      var first = pushbackInputStream.read();
+      this.empty = first < 0;
+      if (empty) {
+        // The shard does not contain any patients
+        this.streamReader = null;
+        this.exhausted = true;
+        return;
+      }
+      pushbackInputStream.unread(first);
+      this.streamReader =
+          ObdsMapper.XML_MAPPER
+              .getFactory()
+              .getXMLInputFactory()
+              .createXMLStreamReader(pushbackInputStream);
+      streamReader.nextTag();
+      // Absender and Meldedatum precede Menge_Patient
+      while (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT
+          && !MENGE_PATIENT_ELEMENT.equals(streamReader.getLocalName())) {
+        if (ABSENDER_ELEMENT.equals(streamReader.getLocalName())) {
+          absender = ObdsMapper.XML_MAPPER.readValue(streamReader, AbsenderTyp.class);
+        } else {
+          streamReader.getElementText();
+        }
+      }
+      if (!streamReader.isStartElement()) {
+        throw new IOException("Shard is not an oBDS document containing Menge_Patient");
+      }
+    }
+
+    private OBDS.MengePatient.Patient peek() throws IOException, XMLStreamException {
+      if (null == nextPatient && !exhausted) {
+        if (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT
+            && PATIENT_ELEMENT.equals(streamReader.getLocalName())) {
+          nextPatient =
+              ObdsMapper.XML_MAPPER.readValue(streamReader, OBDS.MengePatient.Patient.class);
+        } else {
+          // End of Menge_Patient - Menge_Melder follows
+          exhausted = true;
+          if (streamReader.nextTag() == XMLStreamConstants.START_ELEMENT
+              && MENGE_MELDER_ELEMENT.equals(streamReader.getLocalName())) {
+            mengeMelder = ObdsMapper.XML_MAPPER.readValue(streamReader, OBDS.MengeMelder.class);
+          }
+        }
+      }
+      return nextPatient;
+    }
+
+    private void take() {
+      nextPatient = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (null != streamReader) {
+          streamReader.close();
+        }
+      } catch (XMLStreamException e) {
+        throw new IOException(e);
+      } finally {
+        inputStream.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v3.AbsenderTyp;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Writer for oBDS files splitting the patients into several documents, called shards.
+ *
+ * <p>A shard is full after the configured number of patients or once it has reached the configured
+ * number of bytes, the next patient is written into a new shard. Each shard is a complete document
+ * valid on its own: it contains the Absender and Meldedatum and only those Melder of Menge_Melder,
+ * which are referenced by the Meldungen of its patients.
+ *
+ * <p>If Menge_Melder is known up front, a full shard is completed and closed before the next shard
+ * is opened. In ADT_GEKID, Menge_Melder follows the patients. Without it, each shard is spooled
+ * into a temporary file instead and all spooled shards are completed and copied into their outputs
+ * by {@link #writeFooter(OBDS.MengeMelder)}, one at a time. In both cases, at most one output is
+ * open at a time. If validation is enabled, each shard is validated on its own.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @since 0.2.0
+ */
+public class ShardedObdsWriter implements PatientWriter, Closeable {
+
+  /** Opens the output stream of a shard */
+  @FunctionalInterface
+  public interface ShardOutput {
+    /**
+     * Opens the output stream of a shard. The stream is closed by the writer.
+     *
+     * @param shard The number of the shard, starting at 1
+     * @return the output stream to write the shard into
+     * @throws IOException if the output stream cannot be opened
+     */
+    OutputStream open(int shard) throws IOException;
+  }
+
+  private final ShardOutput shardOutput;
+  private final int maxPatients;
+  private final long maxBytes;
+  private final boolean validate;
+  private final boolean ignoreInvalidPatients;
+  private final OBDS.MengeMelder mengeMelder;
+  private final List<Shard> spooledShards = new ArrayList<>();
+  private final List<PatientValidationError> invalidPatients = new ArrayList<>();
+
+  private AbsenderTyp absender;
+  private XMLGregorianCalendar meldedatum;
+  private boolean headerWritten;
+  private int shardCount;
+  private Shard current;
+
+  ShardedObdsWriter(
+      ShardOutput shardOutput,
+      int maxPatients,
+      long maxBytes,
+      boolean validate,
+      boolean ignoreInvalidPatients) {
+    this(shardOutput, maxPatients, maxBytes, validate, ignoreInvalidPatients, null);
+  }
+
+  ShardedObdsWriter(
+      ShardOutput shardOutput,
+      int maxPatients,
+      long maxBytes,
+      boolean validate,
+      boolean ignoreInvalidPatients,
+      OBDS.MengeMelder mengeMelder) {
+    if (maxPatients < 0 || maxBytes < 0) {
+      throw new IllegalArgumentException("Shard limits must not be negative");
+    }
+    this.shardOutput = shardOutput;
+    this.maxPatients = maxPatients;
+    this.maxBytes = maxBytes;
+    this.validate = validate;
+    this.ignoreInvalidPatients = ignoreInvalidPatients;
+    this.mengeMelder = mengeMelder;
+  }
+
+  /**
+   * Sets Absender and Meldedatum written into each shard. Shards are opened when their first
+   * patient is written.
+   *
+   * @param absender The Absender of each shard
+   * @param meldedatum The Meldedatum of each shard - not written if <code>null</code>
+   */
+  @Override
+  public void writeHeader(AbsenderTyp absender, XMLGregorianCalendar meldedatum) {
+    if (headerWritten) {
+      throw new IllegalStateException("Header has already been written");
+    }
+    this.absender = absender;
+    this.meldedatum = meldedatum;
+    this.headerWritten = true;
+  }
+
+  /**
+   * Writes a single patient into the current shard or into a new shard if the current one is full.
+   * A full shard is completed, or spooled if Menge_Melder is not known yet.
+   *
+   * @param patient The mapped patient
+   * @throws IOException if the patient cannot be written
+   */
+  @Override
+  public void writePatient(OBDS.MengePatient.Patient patient) throws IOException {
+    if (!headerWritten) {
+      throw new IllegalStateException("Patients can only be written after the header");
+    }
+    if (null != current && current.isFull()) {
+      if (null != mengeMelder) {
+        current.finish(mengeMelder);
+      } else {
+        current.release();
+      }
+      current = null;
+    }
+    if (null == current) {
+      current = openShard();
+    }
+    current.write(patient);
+  }
+
+  /**
+   * Completes all open shards using the Melder referenced by their patients and closes them. If
+   * Menge_Melder has been given up front, it is used instead of the given one.
+   *
+   * @param mengeMelder The mapped Menge_Melder
+   * @throws IOException if a shard cannot be completed
+   */
+  @Override
+  public void writeFooter(OBDS.MengeMelder mengeMelder) throws IOException {
+    if (!headerWritten) {
+      throw new IllegalStateException("Footer can only be written after the header");
+    }
+    var footer = null != this.mengeMelder ? this.mengeMelder : mengeMelder;
+    if (0 == shardCount) {
+      // Like the unsharded document, a document without patients is written anyway
+      current = openShard();
+    }
+    // Spooled shards precede the current one, if it is spooled as well
+    for (var shard : List.copyOf(spooledShards)) {
+      shard.finish(footer);
+    }
+    if (null != current && !current.closed) {
+      current.finish(footer);
+    }
+    current = null;
+  }
+
+  /**
+   * Returns the number of shards opened so far
+   *
+   * @return the number of shards
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Returns the patients dropped from all shards so far, because they are not valid. Patients are
+   * only dropped if invalid patients are ignored.
+   *
+   * @return the dropped patients
+   */
+  @Override
+  public List<PatientValidationError> getInvalidPatients() {
+    var result = new ArrayList<>(invalidPatients);
+    for (var shard : spooledShards) {
+      if (shard != current) {
+        result.addAll(shard.writer.getInvalidPatients());
+      }
+    }
+    if (null != current) {
+      result.addAll(current.writer.getInvalidPatients());
+    }
+    return List.copyOf(result);
+  }
+
+  @Override
+  public void close() throws IOException {
+    var shards = new ArrayList<>(spooledShards);
+    if (null != current && !shards.contains(current)) {
+      shards.add(current);
+    }
+    IOException exception = null;
+    for (var shard : shards) {
+      try {
+        shard.discard();
+      } catch (IOException e) {
+        if (null == exception) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    spooledShards.clear();
+    current = null;
+    if (null != exception) {
+      throw exception;
+    }
+  }
+
+  private Shard openShard() throws IOException {
+    var number = ++shardCount;
+    Shard shard;
+    if (null != mengeMelder) {
+      shard = new Shard(number, shardOutput.open(number), null);
+    } else {
+      var spool = Files.createTempFile("obds-shard-", ".xml");
+      shard = new Shard(number, new SpoolOutputStream(spool), spool);
+      spooledShards.add(shard);
+    }
+    shard.writer.writeHeader(absender, meldedatum);
+    return shard;
+  }
+
+  private class Shard {
+    private final int number;
+    private final Path spool;
+    private final OutputStream target;
+    private final CountingOutputStream outputStream;
+    private final ObdsWriter writer;
+    private final Set<String> melderIds = new HashSet<>();
+    private int patients;
+    private boolean closed;
+
+    private Shard(int number, OutputStream outputStream, Path spool) throws IOException {
+      this.number = number;
+      this.spool = spool;
+      this.target = outputStream;
+      this.outputStream = new CountingOutputStream(outputStream);
+      this.writer = new ObdsWriter(this.outputStream, validate, ignoreInvalidPatients);
+    }
+
+    private void write(OBDS.MengePatient.Patient patient) throws IOException {
+      var invalidBefore = writer.getInvalidPatientCount();
+      writer.writePatient(patient);
+      patients++;
+      if (writer.getInvalidPatientCount() == invalidBefore && null != patient.getMengeMeldung()) {
+        // Dropped patients do not need their Melder
+        for (var meldung : patient.getMengeMeldung().getMeldung()) {
+          melderIds.add(meldung.getMelderID());
+        }
+      }
+      if (maxBytes > 0) {
+        // Written bytes are only counted once they have left the generator
+        writer.flush();
+      }
+    }
+
+    private boolean isFull() {
+      return (maxPatients > 0 && patients >= maxPatients)
+          || (maxBytes > 0 && outputStream.count >= maxBytes);
+    }
+
+    /** Closes the file of a spooled shard until it is completed */
+    private void release() throws IOException {
+      writer.flush();
+      ((SpoolOutputStream) target).release();
+    }
+
+    private void finish(OBDS.MengeMelder mengeMelder) throws IOException {
+      OBDS.MengeMelder referencedMelder = null;
+      if (null != mengeMelder) {
+        referencedMelder = new OBDS.MengeMelder();
+        for (var melder : mengeMelder.getMelder()) {
+          if (melderIds.contains(melder.getID())) {
+            referencedMelder.getMelder().add(melder);
+          }
+        }
+      }
+      writer.writeFooter(referencedMelder);
+      closed = true;
+      writer.close();
+      invalidPatients.addAll(writer.getInvalidPatients());
+
+      if (null != spool) {
+        try (var output = shardOutput.open(number)) {
+          Files.copy(spool, output);
+        }
+        spooledShards.remove(this);
+        Files.delete(spool);
+      }
+    }
+
+    private void discard() throws IOException {
+      try {
+        if (!closed) {
+          closed = true;
+          writer.close();
+        }
+      } finally {
+        if (null != spool) {
+          Files.deleteIfExists(spool);
+        }
+      }
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    private CountingOutputStream(OutputStream outputStream) {
+      super(outputStream);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+  /** Output stream into a temporary file, which is only open while the shard is written */
+  private static class SpoolOutputStream extends OutputStream {
+    private final Path file;
+    private OutputStream outputStream;
+
+    private SpoolOutputStream(Path file) {
+      this.file = file;
+    }
+
+    private OutputStream outputStream() throws IOException {
+      if (null == outputStream) {
+        outputStream =
+            new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND));
+      }
+      return outputStream;
+    }
+
+    private void release() throws IOException {
+      if (null != outputStream) {
+        try {
+          outputStream.close();
+        } finally {
+          outputStream = null;
+        }
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      outputStream().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      outputStream().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (null != outputStream) {
+        outputStream.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      release();
+    }
+  }
+}
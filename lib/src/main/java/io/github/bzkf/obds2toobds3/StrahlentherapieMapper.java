@@ -28,51 +28,60 @@ public class StrahlentherapieMapper {
     var result = new ArrayList<STTyp>();
     for (var source : mengeST.getST()) {
       MDC.put("STID", source.getSTID());
-      var stTyp = new STTyp();
-      stTyp.setSTID(source.getSTID());
+      try {
+        result.add(mapST(source, meldeanlass));
+      } finally {
+        MDC.remove("STID");
+      }
+    }
 
-      stTyp.setMeldeanlass(Meldeanlass.fromValue(meldeanlass));
+    return result;
+  }
 
-      // v2: K, P, S, X
-      // v3: K, P, S, X, O
-      stTyp.setIntention(source.getSTIntention());
+  private static STTyp mapST(
+      de.basisdatensatz.obds.v2.ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung.MengeST.ST
+          source,
+      String meldeanlass) {
+    var stTyp = new STTyp();
+    stTyp.setSTID(source.getSTID());
 
-      // v2: O, A, N, I, S
-      // v3: O, A, N, I, S, Z
-      stTyp.setStellungOP(source.getSTStellungOP());
+    stTyp.setMeldeanlass(Meldeanlass.fromValue(meldeanlass));
 
-      // v2: A, E, V, P, S, U
-      // v3: A, E, V, P, S, U, F, T
-      stTyp.setEndeGrund(source.getSTEndeGrund());
+    // v2: K, P, S, X
+    // v3: K, P, S, X, O
+    stTyp.setIntention(source.getSTIntention());
 
-      var mengeBestrahlung = new MengeBestrahlung();
+    // v2: O, A, N, I, S
+    // v3: O, A, N, I, S, Z
+    stTyp.setStellungOP(source.getSTStellungOP());
 
-      for (var bestrahlungV2 : source.getMengeBestrahlung().getBestrahlung()) {
-        var bestrahlungV3 = new STTyp.MengeBestrahlung.Bestrahlung();
+    // v2: A, E, V, P, S, U
+    // v3: A, E, V, P, S, U, F, T
+    stTyp.setEndeGrund(source.getSTEndeGrund());
 
-        var mappedApplikationsart = mapApplikationsart(bestrahlungV2);
-        bestrahlungV3.setApplikationsart(mappedApplikationsart);
+    var mengeBestrahlung = new MengeBestrahlung();
 
-        MapperUtils.mapDateString(bestrahlungV2.getSTBeginnDatum())
-            .ifPresent(d -> bestrahlungV3.setBeginn(d.getValue()));
-        MapperUtils.mapDateString(bestrahlungV2.getSTEndeDatum())
-            .ifPresent(d -> bestrahlungV3.setEnde(d.getValue()));
+    for (var bestrahlungV2 : source.getMengeBestrahlung().getBestrahlung()) {
+      var bestrahlungV3 = new STTyp.MengeBestrahlung.Bestrahlung();
 
-        mengeBestrahlung.getBestrahlung().add(bestrahlungV3);
-      }
+      var mappedApplikationsart = mapApplikationsart(bestrahlungV2);
+      bestrahlungV3.setApplikationsart(mappedApplikationsart);
 
-      stTyp.setMengeBestrahlung(mengeBestrahlung);
+      MapperUtils.mapDateString(bestrahlungV2.getSTBeginnDatum())
+          .ifPresent(d -> bestrahlungV3.setBeginn(d.getValue()));
+      MapperUtils.mapDateString(bestrahlungV2.getSTEndeDatum())
+          .ifPresent(d -> bestrahlungV3.setEnde(d.getValue()));
 
-      if (source.getMengeNebenwirkung() != null) {
-        var mappedNebenwirkungen = mapNebenwirkungen(source.getMengeNebenwirkung());
-        stTyp.setNebenwirkungen(mappedNebenwirkungen);
-      }
-
-      result.add(stTyp);
-      MDC.remove("STID");
+      mengeBestrahlung.getBestrahlung().add(bestrahlungV3);
     }
 
-    return result;
+    stTyp.setMengeBestrahlung(mengeBestrahlung);
+
+    if (source.getMengeNebenwirkung() != null) {
+      var mappedNebenwirkungen = mapNebenwirkungen(source.getMengeNebenwirkung());
+      stTyp.setNebenwirkungen(mappedNebenwirkungen);
+    }
+    return stTyp;
   }
 
   private static NebenwirkungTyp mapNebenwirkungen(MengeNebenwirkung mengeNebenwirkung) {
@@ -26,49 +26,58 @@ public class SystemtherapieMapper {
     var result = new ArrayList<SYSTTyp>();
     for (var source : mengeSyst.getSYST()) {
       MDC.put("SYSTID", source.getSYSTID());
-      var systTyp = new SYSTTyp();
+      try {
+        result.add(mapSYST(source, meldeanlass));
+      } finally {
+        MDC.remove("SYSTID");
+      }
+    }
 
-      systTyp.setSYSTID(source.getSYSTID());
-      systTyp.setIntention(source.getSYSTIntention());
-      systTyp.setStellungOP(source.getSYSTStellungOP());
-      systTyp.setMeldeanlass(Meldeanlass.fromValue(meldeanlass));
+    return result;
+  }
 
-      if (source.getMengeTherapieart() != null) {
-        var therapieart = mapTherapieart(source.getMengeTherapieart().getSYSTTherapieart());
-        systTyp.setTherapieart(therapieart);
-      }
+  private static SYSTTyp mapSYST(
+      de.basisdatensatz.obds.v2.ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung.MengeSYST.SYST
+          source,
+      String meldeanlass) {
+    var systTyp = new SYSTTyp();
 
-      systTyp.setProtokoll(source.getSYSTProtokoll());
+    systTyp.setSYSTID(source.getSYSTID());
+    systTyp.setIntention(source.getSYSTIntention());
+    systTyp.setStellungOP(source.getSYSTStellungOP());
+    systTyp.setMeldeanlass(Meldeanlass.fromValue(meldeanlass));
 
-      MapperUtils.mapDateStringGenau(source.getSYSTBeginnDatum()).ifPresent(systTyp::setBeginn);
-      MapperUtils.mapDateString(source.getSYSTEndeDatum())
-          .ifPresent(d -> systTyp.setEnde(d.getValue()));
+    if (source.getMengeTherapieart() != null) {
+      var therapieart = mapTherapieart(source.getMengeTherapieart().getSYSTTherapieart());
+      systTyp.setTherapieart(therapieart);
+    }
 
-      if (source.getMengeSubstanz() != null) {
-        var mengeSubstanz = new SYSTTyp.MengeSubstanz();
-        for (var substanz : source.getMengeSubstanz().getSYSTSubstanz()) {
-          var substanzv3 = new SYSTTyp.MengeSubstanz.Substanz();
-          substanzv3.setBezeichnung(substanz);
-          mengeSubstanz.getSubstanz().add(substanzv3);
-        }
+    systTyp.setProtokoll(source.getSYSTProtokoll());
 
-        systTyp.setMengeSubstanz(mengeSubstanz);
-      }
+    MapperUtils.mapDateStringGenau(source.getSYSTBeginnDatum()).ifPresent(systTyp::setBeginn);
+    MapperUtils.mapDateString(source.getSYSTEndeDatum())
+        .ifPresent(d -> systTyp.setEnde(d.getValue()));
 
-      if (source.getSYSTEndeGrund() != null) {
-        systTyp.setEndeGrund(EndeGrund.fromValue(source.getSYSTEndeGrund()));
+    if (source.getMengeSubstanz() != null) {
+      var mengeSubstanz = new SYSTTyp.MengeSubstanz();
+      for (var substanz : source.getMengeSubstanz().getSYSTSubstanz()) {
+        var substanzv3 = new SYSTTyp.MengeSubstanz.Substanz();
+        substanzv3.setBezeichnung(substanz);
+        mengeSubstanz.getSubstanz().add(substanzv3);
       }
 
-      if (source.getMengeNebenwirkung() != null) {
-        var mappedNebenwirkungen = mapNebenwirkungen(source.getMengeNebenwirkung());
-        systTyp.setNebenwirkungen(mappedNebenwirkungen);
-      }
+      systTyp.setMengeSubstanz(mengeSubstanz);
+    }
 
-      result.add(systTyp);
-      MDC.remove("SYSTID");
+    if (source.getSYSTEndeGrund() != null) {
+      systTyp.setEndeGrund(EndeGrund.fromValue(source.getSYSTEndeGrund()));
     }
 
-    return result;
+    if (source.getMengeNebenwirkung() != null) {
+      var mappedNebenwirkungen = mapNebenwirkungen(source.getMengeNebenwirkung());
+      systTyp.setNebenwirkungen(mappedNebenwirkungen);
+    }
+    return systTyp;
   }
 
   private static Therapieart mapTherapieart(List<String> therapieartV2) {
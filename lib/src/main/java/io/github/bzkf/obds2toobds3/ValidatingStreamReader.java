@@ -0,0 +1,211 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.validation.ValidatorHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Stream reader validating the document against a schema while its events are consumed.
+ *
+ * <p>Each event read from the underlying reader is passed on to a {@link ValidatorHandler}, so the
+ * document is tokenized once for both binding and validation. A {@link SchemaValidatorException} is
+ * thrown as soon as an invalid event is read, unless an error handler collecting errors is used.
+ */
+class ValidatingStreamReader extends StreamReaderDelegate {
+
+  private final ValidatorHandler validatorHandler;
+  private final AttributesImpl attributes = new AttributesImpl();
+
+  private int depth;
+
+  ValidatingStreamReader(XMLStreamReader reader, SchemaValidator.SchemaVersion schemaVersion) {
+    this(reader, schemaVersion, null);
+  }
+
+  ValidatingStreamReader(
+      XMLStreamReader reader,
+      SchemaValidator.SchemaVersion schemaVersion,
+      ErrorHandler errorHandler) {
+    super(reader);
+    this.validatorHandler = SchemaValidator.schema(schemaVersion).newValidatorHandler();
+    this.validatorHandler.setDocumentLocator(new StreamLocator());
+    this.validatorHandler.setErrorHandler(errorHandler);
+    try {
+      if (reader.getEventType() != XMLStreamConstants.START_DOCUMENT) {
+        throw new IllegalStateException("Reader must be positioned at the start of the document");
+      }
+      validatorHandler.startDocument();
+    } catch (SAXException e) {
+      throw new SchemaValidatorException("Cannot validate result using oBDS schema", e);
+    }
+  }
+
+  /**
+   * Returns the number of elements opened but not yet closed
+   *
+   * @return the depth of the current element
+   */
+  int getDepth() {
+    return depth;
+  }
+
+  @Override
+  public int next() throws XMLStreamException {
+    var eventType = super.next();
+    try {
+      switch (eventType) {
+        case XMLStreamConstants.START_ELEMENT -> {
+          depth++;
+          startElement();
+        }
+        case XMLStreamConstants.END_ELEMENT -> {
+          depth--;
+          endElement();
+        }
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+            validatorHandler.characters(getTextCharacters(), getTextStart(), getTextLength());
+        case XMLStreamConstants.END_DOCUMENT -> validatorHandler.endDocument();
+        default -> {
+          // Comments, processing instructions and DTD are not validated
+        }
+      }
+    } catch (SAXException e) {
+      throw new SchemaValidatorException("Cannot validate result using oBDS schema", e);
+    }
+    return eventType;
+  }
+
+  // The following methods must not be delegated - the underlying reader would skip the validator
+
+  @Override
+  public int nextTag() throws XMLStreamException {
+    var eventType = next();
+    while (eventType == XMLStreamConstants.SPACE
+        || eventType == XMLStreamConstants.COMMENT
+        || eventType == XMLStreamConstants.PROCESSING_INSTRUCTION
+        || (eventType == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+        || (eventType == XMLStreamConstants.CDATA && isWhiteSpace())) {
+      eventType = next();
+    }
+    if (eventType != XMLStreamConstants.START_ELEMENT
+        && eventType != XMLStreamConstants.END_ELEMENT) {
+      throw new XMLStreamException("Expected start or end tag", getLocation());
+    }
+    return eventType;
+  }
+
+  @Override
+  public String getElementText() throws XMLStreamException {
+    if (getEventType() != XMLStreamConstants.START_ELEMENT) {
+      throw new XMLStreamException("Current event is not a start tag", getLocation());
+    }
+    var result = new StringBuilder();
+    for (var eventType = next(); eventType != XMLStreamConstants.END_ELEMENT; eventType = next()) {
+      switch (eventType) {
+        case XMLStreamConstants.CHARACTERS,
+            XMLStreamConstants.CDATA,
+            XMLStreamConstants.SPACE,
+            XMLStreamConstants.ENTITY_REFERENCE ->
+            result.append(getText());
+        case XMLStreamConstants.COMMENT, XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+          // Not part of the element text
+        }
+        default -> throw new XMLStreamException("Unexpected event in element text", getLocation());
+      }
+    }
+    return result.toString();
+  }
+
+  private void startElement() throws SAXException {
+    for (int i = 0; i < getNamespaceCount(); i++) {
+      validatorHandler.startPrefixMapping(
+          nullToEmpty(getNamespacePrefix(i)), nullToEmpty(getNamespaceURI(i)));
+    }
+
+    attributes.clear();
+    for (int i = 0; i < getAttributeCount(); i++) {
+      attributes.addAttribute(
+          nullToEmpty(getAttributeNamespace(i)),
+          getAttributeLocalName(i),
+          qualifiedName(getAttributePrefix(i), getAttributeLocalName(i)),
+          null == getAttributeType(i) ? "CDATA" : getAttributeType(i),
+          getAttributeValue(i));
+    }
+
+    validatorHandler.startElement(
+        nullToEmpty(getNamespaceURI()),
+        getLocalName(),
+        qualifiedName(getPrefix(), getLocalName()),
+        attributes);
+  }
+
+  private void endElement() throws SAXException {
+    validatorHandler.endElement(
+        nullToEmpty(getNamespaceURI()), getLocalName(), qualifiedName(getPrefix(), getLocalName()));
+
+    // At the end tag, these are the namespaces going out of scope
+    for (int i = 0; i < getNamespaceCount(); i++) {
+      validatorHandler.endPrefixMapping(nullToEmpty(getNamespacePrefix(i)));
+    }
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return null == prefix || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static String nullToEmpty(String value) {
+    return null == value ? "" : value;
+  }
+
+  private class StreamLocator implements Locator {
+    @Override
+    public String getPublicId() {
+      return getLocation().getPublicId();
+    }
+
+    @Override
+    public String getSystemId() {
+      return getLocation().getSystemId();
+    }
+
+    @Override
+    public int getLineNumber() {
+      return getLocation().getLineNumber();
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return getLocation().getColumnNumber();
+    }
+  }
+}
@@ -0,0 +1,590 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.ValidatorHandler;
+import org.codehaus.stax2.XMLStreamWriter2;
+import org.codehaus.stax2.typed.Base64Variant;
+import org.codehaus.stax2.util.StreamWriter2Delegate;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Stream writer validating the document against a schema while it is written.
+ *
+ * <p>Each write is checked by a {@link ValidatorHandler} before it is passed on to the underlying
+ * writer, so the document is validated without parsing the written output. Start tags are held back
+ * until they are complete and have been validated. A {@link SchemaValidatorException} is thrown as
+ * soon as invalid content is written and the invalid content is not passed on, unless an error
+ * handler collecting errors is used. Some errors, such as missing elements, are only detected at
+ * the end of the enclosing element, so the output written before an error is an incomplete document
+ * and has to be discarded. Since the mapped classes do not carry the namespace, an attribute named
+ * <code>xmlns</code> is treated as default namespace declaration.
+ *
+ * <p>Raw content is not validated - it is used for indentation only. Typed arrays and QName values
+ * are not supported.
+ */
+class ValidatingStreamWriter extends StreamWriter2Delegate {
+
+  private final ValidatorHandler validatorHandler;
+  private final NamespaceSupport namespaces = new NamespaceSupport();
+  private final AttributesImpl attributes = new AttributesImpl();
+  private final Deque<Element> openElements = new ArrayDeque<>();
+
+  // Attributes and namespaces can be written until the start tag is complete - its writes are held
+  // back until it has been validated
+  private final List<StreamAction> pendingWrites = new ArrayList<>();
+  private Element pendingElement;
+  private boolean pendingEmptyElement;
+
+  ValidatingStreamWriter(XMLStreamWriter2 writer, SchemaValidator.SchemaVersion schemaVersion) {
+    this(writer, schemaVersion, null);
+  }
+
+  ValidatingStreamWriter(
+      XMLStreamWriter2 writer,
+      SchemaValidator.SchemaVersion schemaVersion,
+      ErrorHandler errorHandler) {
+    super(writer);
+    // The delegate constructor does not initialize the XMLStreamWriter2 delegate
+    setParent(writer);
+    this.validatorHandler = SchemaValidator.schema(schemaVersion).newValidatorHandler();
+    this.validatorHandler.setDocumentLocator(new StreamLocator());
+    this.validatorHandler.setErrorHandler(errorHandler);
+    validate(validatorHandler::startDocument);
+  }
+
+  @Override
+  public void writeStartElement(String localName) throws XMLStreamException {
+    startElement("", "", localName, false, () -> super.writeStartElement(localName));
+  }
+
+  @Override
+  public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+    startElement(
+        "", namespaceURI, localName, false, () -> super.writeStartElement(namespaceURI, localName));
+  }
+
+  @Override
+  public void writeStartElement(String prefix, String localName, String namespaceURI)
+      throws XMLStreamException {
+    startElement(
+        prefix,
+        namespaceURI,
+        localName,
+        false,
+        () -> super.writeStartElement(prefix, localName, namespaceURI));
+  }
+
+  @Override
+  public void writeEmptyElement(String localName) throws XMLStreamException {
+    startElement("", "", localName, true, () -> super.writeEmptyElement(localName));
+  }
+
+  @Override
+  public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+    startElement(
+        "", namespaceURI, localName, true, () -> super.writeEmptyElement(namespaceURI, localName));
+  }
+
+  @Override
+  public void writeEmptyElement(String prefix, String localName, String namespaceURI)
+      throws XMLStreamException {
+    startElement(
+        prefix,
+        namespaceURI,
+        localName,
+        true,
+        () -> super.writeEmptyElement(prefix, localName, namespaceURI));
+  }
+
+  @Override
+  public void writeEndElement() throws XMLStreamException {
+    content(this::endElement);
+    super.writeEndElement();
+  }
+
+  @Override
+  public void writeFullEndElement() throws XMLStreamException {
+    content(this::endElement);
+    super.writeFullEndElement();
+  }
+
+  @Override
+  public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+    declareNamespace(
+        null == prefix || "xmlns".equals(prefix) ? "" : prefix,
+        namespaceURI,
+        () -> super.writeNamespace(prefix, namespaceURI));
+  }
+
+  @Override
+  public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+    declareNamespace("", namespaceURI, () -> super.writeDefaultNamespace(namespaceURI));
+  }
+
+  @Override
+  public void writeAttribute(String localName, String value) throws XMLStreamException {
+    attribute("", "", localName, value, () -> super.writeAttribute(localName, value));
+  }
+
+  @Override
+  public void writeAttribute(String namespaceURI, String localName, String value)
+      throws XMLStreamException {
+    attribute(
+        "",
+        namespaceURI,
+        localName,
+        value,
+        () -> super.writeAttribute(namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeAttribute(String prefix, String namespaceURI, String localName, String value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        value,
+        () -> super.writeAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeBooleanAttribute(
+      String prefix, String namespaceURI, String localName, boolean value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        String.valueOf(value),
+        () -> super.writeBooleanAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeIntAttribute(String prefix, String namespaceURI, String localName, int value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        String.valueOf(value),
+        () -> super.writeIntAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeLongAttribute(String prefix, String namespaceURI, String localName, long value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        String.valueOf(value),
+        () -> super.writeLongAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeFloatAttribute(String prefix, String namespaceURI, String localName, float value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        String.valueOf(value),
+        () -> super.writeFloatAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeDoubleAttribute(
+      String prefix, String namespaceURI, String localName, double value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        String.valueOf(value),
+        () -> super.writeDoubleAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeIntegerAttribute(
+      String prefix, String namespaceURI, String localName, BigInteger value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        value.toString(),
+        () -> super.writeIntegerAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeDecimalAttribute(
+      String prefix, String namespaceURI, String localName, BigDecimal value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        value.toString(),
+        () -> super.writeDecimalAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeBinaryAttribute(
+      String prefix, String namespaceURI, String localName, byte[] value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        Base64.getEncoder().encodeToString(value),
+        () -> super.writeBinaryAttribute(prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeBinaryAttribute(
+      Base64Variant variant, String prefix, String namespaceURI, String localName, byte[] value)
+      throws XMLStreamException {
+    attribute(
+        prefix,
+        namespaceURI,
+        localName,
+        Base64.getEncoder().encodeToString(value),
+        () -> super.writeBinaryAttribute(variant, prefix, namespaceURI, localName, value));
+  }
+
+  @Override
+  public void writeCharacters(String text) throws XMLStreamException {
+    characters(text);
+    super.writeCharacters(text);
+  }
+
+  @Override
+  public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+    content(() -> characters(text, start, len));
+    super.writeCharacters(text, start, len);
+  }
+
+  @Override
+  public void writeCData(String text) throws XMLStreamException {
+    characters(text);
+    super.writeCData(text);
+  }
+
+  @Override
+  public void writeCData(char[] text, int start, int len) throws XMLStreamException {
+    content(() -> characters(text, start, len));
+    super.writeCData(text, start, len);
+  }
+
+  @Override
+  public void writeSpace(String text) throws XMLStreamException {
+    characters(text);
+    super.writeSpace(text);
+  }
+
+  @Override
+  public void writeSpace(char[] text, int start, int len) throws XMLStreamException {
+    content(() -> characters(text, start, len));
+    super.writeSpace(text, start, len);
+  }
+
+  @Override
+  public void writeBoolean(boolean value) throws XMLStreamException {
+    characters(String.valueOf(value));
+    super.writeBoolean(value);
+  }
+
+  @Override
+  public void writeInt(int value) throws XMLStreamException {
+    characters(String.valueOf(value));
+    super.writeInt(value);
+  }
+
+  @Override
+  public void writeLong(long value) throws XMLStreamException {
+    characters(String.valueOf(value));
+    super.writeLong(value);
+  }
+
+  @Override
+  public void writeFloat(float value) throws XMLStreamException {
+    characters(String.valueOf(value));
+    super.writeFloat(value);
+  }
+
+  @Override
+  public void writeDouble(double value) throws XMLStreamException {
+    characters(String.valueOf(value));
+    super.writeDouble(value);
+  }
+
+  @Override
+  public void writeInteger(BigInteger value) throws XMLStreamException {
+    characters(value.toString());
+    super.writeInteger(value);
+  }
+
+  @Override
+  public void writeDecimal(BigDecimal value) throws XMLStreamException {
+    characters(value.toString());
+    super.writeDecimal(value);
+  }
+
+  @Override
+  public void writeBinary(byte[] value, int from, int length) throws XMLStreamException {
+    characters(Base64.getEncoder().encodeToString(Arrays.copyOfRange(value, from, from + length)));
+    super.writeBinary(value, from, length);
+  }
+
+  @Override
+  public void writeBinary(Base64Variant variant, byte[] value, int from, int length)
+      throws XMLStreamException {
+    characters(Base64.getEncoder().encodeToString(Arrays.copyOfRange(value, from, from + length)));
+    super.writeBinary(variant, value, from, length);
+  }
+
+  @Override
+  public void writeRaw(String text) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeRaw(text);
+  }
+
+  @Override
+  public void writeRaw(String text, int offset, int length) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeRaw(text, offset, length);
+  }
+
+  @Override
+  public void writeRaw(char[] text, int offset, int length) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeRaw(text, offset, length);
+  }
+
+  @Override
+  public void writeComment(String data) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeComment(data);
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeProcessingInstruction(target);
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeProcessingInstruction(target, data);
+  }
+
+  @Override
+  public void writeEndDocument() throws XMLStreamException {
+    content(this::completeStartElement);
+    super.writeEndDocument();
+  }
+
+  private void startElement(
+      String prefix, String namespaceURI, String localName, boolean empty, StreamAction write)
+      throws XMLStreamException {
+    content(this::completeStartElement);
+    namespaces.pushContext();
+    pendingElement =
+        new Element(nullToEmpty(prefix), nullToEmpty(namespaceURI), localName, new ArrayList<>());
+    pendingEmptyElement = empty;
+    attributes.clear();
+    pendingWrites.add(write);
+  }
+
+  private void declareNamespace(String prefix, String namespaceURI, StreamAction write)
+      throws XMLStreamException {
+    if (null == pendingElement) {
+      write.run();
+      return;
+    }
+    declarePrefix(prefix, namespaceURI);
+    pendingWrites.add(write);
+  }
+
+  private void declarePrefix(String prefix, String namespaceURI) {
+    namespaces.declarePrefix(prefix, nullToEmpty(namespaceURI));
+    pendingElement.declaredPrefixes().add(prefix);
+  }
+
+  private void attribute(
+      String prefix, String namespaceURI, String localName, String value, StreamAction write)
+      throws XMLStreamException {
+    if (null == pendingElement) {
+      write.run();
+      return;
+    }
+    prefix = nullToEmpty(prefix);
+    namespaceURI = nullToEmpty(namespaceURI);
+    if (prefix.isEmpty() && namespaceURI.isEmpty() && "xmlns".equals(localName)) {
+      declarePrefix("", value);
+    } else if ("xmlns".equals(prefix)) {
+      declarePrefix(localName, value);
+    } else {
+      attributes.addAttribute(
+          namespaceURI, localName, qualifiedName(prefix, localName), "CDATA", value);
+    }
+    pendingWrites.add(write);
+  }
+
+  /**
+   * Validates the next event and writes the start tag held back so far. Nothing is written if the
+   * event is invalid.
+   */
+  private void content(SaxAction action) throws XMLStreamException {
+    validate(action);
+    for (var write : pendingWrites) {
+      write.run();
+    }
+    pendingWrites.clear();
+  }
+
+  private void completeStartElement() throws SAXException {
+    if (null == pendingElement) {
+      return;
+    }
+    var element = pendingElement;
+    pendingElement = null;
+
+    for (var prefix : element.declaredPrefixes()) {
+      validatorHandler.startPrefixMapping(prefix, namespaces.getURI(prefix));
+    }
+
+    // Elements written without namespace are in the namespace declared for their prefix
+    var namespaceURI =
+        element.namespaceURI().isEmpty()
+            ? nullToEmpty(namespaces.getURI(element.prefix()))
+            : element.namespaceURI();
+    var resolvedElement =
+        new Element(
+            element.prefix(), namespaceURI, element.localName(), element.declaredPrefixes());
+    validatorHandler.startElement(
+        namespaceURI, element.localName(), resolvedElement.qualifiedName(), attributes);
+    openElements.push(resolvedElement);
+
+    if (pendingEmptyElement) {
+      endElement();
+    }
+  }
+
+  private void endElement() throws SAXException {
+    completeStartElement();
+    var element = openElements.pop();
+    validatorHandler.endElement(
+        element.namespaceURI(), element.localName(), element.qualifiedName());
+    for (var prefix : element.declaredPrefixes()) {
+      validatorHandler.endPrefixMapping(prefix);
+    }
+    namespaces.popContext();
+
+    if (openElements.isEmpty()) {
+      validatorHandler.endDocument();
+    }
+  }
+
+  private void characters(String text) throws XMLStreamException {
+    if (null != text) {
+      content(() -> characters(text.toCharArray(), 0, text.length()));
+    }
+  }
+
+  private void characters(char[] text, int start, int len) throws SAXException {
+    completeStartElement();
+    validatorHandler.characters(text, start, len);
+  }
+
+  private static void validate(SaxAction action) {
+    try {
+      action.run();
+    } catch (SAXException e) {
+      throw new SchemaValidatorException("Cannot validate result using oBDS schema", e);
+    }
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static String nullToEmpty(String value) {
+    return null == value ? "" : value;
+  }
+
+  private interface SaxAction {
+    void run() throws SAXException;
+  }
+
+  private interface StreamAction {
+    void run() throws XMLStreamException;
+  }
+
+  private record Element(
+      String prefix, String namespaceURI, String localName, List<String> declaredPrefixes) {
+    String qualifiedName() {
+      return ValidatingStreamWriter.qualifiedName(prefix, localName);
+    }
+  }
+
+  private class StreamLocator implements Locator {
+    @Override
+    public String getPublicId() {
+      return getLocation().getPublicId();
+    }
+
+    @Override
+    public String getSystemId() {
+      return getLocation().getSystemId();
+    }
+
+    @Override
+    public int getLineNumber() {
+      return getLocation().getLineNumber();
+    }
+
+    @Override
+    public int getColumnNumber() {
+      return getLocation().getColumnNumber();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Error handler collecting schema validation errors instead of aborting validation.
+ *
+ * <p>The validator recovers from validation errors, so errors can be assigned to the part of the
+ * document in which they occurred. Fatal errors still abort validation.
+ */
+class ValidationErrorCollector implements ErrorHandler {
+
+  private final List<SAXParseException> errors = new ArrayList<>();
+
+  @Override
+  public void warning(SAXParseException exception) {
+    // Warnings do not affect validity
+  }
+
+  @Override
+  public void error(SAXParseException exception) {
+    errors.add(exception);
+  }
+
+  @Override
+  public void fatalError(SAXParseException exception) throws SAXParseException {
+    throw exception;
+  }
+
+  /**
+   * Returns and removes all errors collected so far
+   *
+   * @return the collected errors
+   */
+  List<SAXParseException> drain() {
+    var result = List.copyOf(errors);
+    errors.clear();
+    return result;
+  }
+
+  /**
+   * Throws the first error collected so far
+   *
+   * @throws SchemaValidatorException if any error has been collected
+   */
+  void throwIfAny() {
+    if (!errors.isEmpty()) {
+      var error = errors.getFirst();
+      errors.clear();
+      throw new SchemaValidatorException("Cannot validate result using oBDS schema", error);
+    }
+  }
+}
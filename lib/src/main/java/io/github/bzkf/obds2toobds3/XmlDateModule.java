@@ -0,0 +1,123 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Jackson module writing dates as <code>yyyy-MM-dd</code> using immutable {@link DateTimeFormatter}
+ * instances instead of a shared {@link java.text.SimpleDateFormat}, which Jackson has to clone for
+ * each use.
+ *
+ * <p>Like a <code>SimpleDateFormat</code> using the default time zone, a date with time zone is
+ * written as the date of the same instant in the default time zone.
+ */
+class XmlDateModule extends SimpleModule {
+
+  XmlDateModule() {
+    super("XmlDateModule");
+    addSerializer(XMLGregorianCalendar.class, new XmlGregorianCalendarSerializer());
+    addDeserializer(XMLGregorianCalendar.class, new XmlGregorianCalendarDeserializer());
+  }
+
+  static String format(XMLGregorianCalendar value) {
+    if (value.getYear() == DatatypeConstants.FIELD_UNDEFINED
+        || value.getMonth() == DatatypeConstants.FIELD_UNDEFINED
+        || value.getDay() == DatatypeConstants.FIELD_UNDEFINED) {
+      // Partial dates like gYear keep their lexical representation
+      return value.toXMLFormat();
+    }
+
+    var dateTime =
+        LocalDateTime.of(value.getYear(), value.getMonth(), value.getDay(), 0, 0)
+            .plusHours(orZero(value.getHour()))
+            .plusMinutes(orZero(value.getMinute()))
+            .plusSeconds(orZero(value.getSecond()));
+    var date =
+        value.getTimezone() == DatatypeConstants.FIELD_UNDEFINED
+            ? dateTime.toLocalDate()
+            : LocalDate.ofInstant(
+                dateTime.toInstant(ZoneOffset.ofTotalSeconds(value.getTimezone() * 60)),
+                ZoneId.systemDefault());
+    return DateTimeFormatter.ISO_LOCAL_DATE.format(date);
+  }
+
+  private static int orZero(int field) {
+    return field == DatatypeConstants.FIELD_UNDEFINED ? 0 : field;
+  }
+
+  private static class XmlGregorianCalendarSerializer
+      extends StdScalarSerializer<XMLGregorianCalendar> {
+
+    private XmlGregorianCalendarSerializer() {
+      super(XMLGregorianCalendar.class);
+    }
+
+    @Override
+    public void serialize(
+        XMLGregorianCalendar value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+      generator.writeString(format(value));
+    }
+  }
+
+  private static class XmlGregorianCalendarDeserializer
+      extends StdScalarDeserializer<XMLGregorianCalendar> {
+
+    private XmlGregorianCalendarDeserializer() {
+      super(XMLGregorianCalendar.class);
+    }
+
+    @Override
+    public XMLGregorianCalendar deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      var text = parser.getValueAsString();
+      if (null == text || text.isBlank()) {
+        return null;
+      }
+      try {
+        return MapperUtils.DATATYPE_FACTORY.newXMLGregorianCalendar(text.trim());
+      } catch (IllegalArgumentException e) {
+        return (XMLGregorianCalendar)
+            context.handleWeirdStringValue(
+                XMLGregorianCalendar.class, text, "not a valid xsd:date value");
+      }
+    }
+  }
+}
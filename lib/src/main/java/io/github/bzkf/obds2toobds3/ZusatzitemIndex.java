@@ -0,0 +1,76 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import de.basisdatensatz.obds.v3.MengeZusatzitemTyp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index of the Zusatzitems of a single Meldung keyed by Art. The index is built in one pass and
+ * also separates Einsender items from all other items.
+ */
+final class ZusatzitemIndex {
+
+  static final String EINSENDER_PREFIX = "Einsender";
+
+  private final Map<String, MengeZusatzitemTyp.Zusatzitem> firstByArt = new HashMap<>();
+  private final List<MengeZusatzitemTyp.Zusatzitem> withoutEinsender = new ArrayList<>();
+
+  ZusatzitemIndex(MengeZusatzitemTyp mengeZusatzitem) {
+    for (var zusatzitem : mengeZusatzitem.getZusatzitem()) {
+      var art = zusatzitem.getArt();
+      if (null != art) {
+        firstByArt.putIfAbsent(art, zusatzitem);
+      }
+      if (null == art || !art.startsWith(EINSENDER_PREFIX)) {
+        withoutEinsender.add(zusatzitem);
+      }
+    }
+  }
+
+  /**
+   * Returns the Wert of the first Zusatzitem with given Art
+   *
+   * @param art The Art of the Zusatzitem
+   * @return the Wert or an empty Optional if there is no such Zusatzitem
+   */
+  Optional<String> wert(String art) {
+    return Optional.ofNullable(firstByArt.get(art)).map(MengeZusatzitemTyp.Zusatzitem::getWert);
+  }
+
+  /**
+   * Returns all Zusatzitems in their original order, except those with an Art starting with
+   * "Einsender"
+   *
+   * @return the Zusatzitems
+   */
+  List<MengeZusatzitemTyp.Zusatzitem> withoutEinsender() {
+    return withoutEinsender;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AdtGekidGeneratorTest {
+
+  @Test
+  void shouldGenerateSameDocumentForSameConfiguration() {
+    var first = AdtGekidGenerator.builder().seed(42).patients(20).dirtyShare(0.2).build();
+    var second = AdtGekidGenerator.builder().seed(42).patients(20).dirtyShare(0.2).build();
+
+    assertThat(first.writeString()).isEqualTo(second.writeString());
+  }
+
+  @Test
+  void shouldGenerateOtherDocumentForOtherSeed() {
+    var first = AdtGekidGenerator.builder().seed(42).patients(20).build();
+    var second = AdtGekidGenerator.builder().seed(43).patients(20).build();
+
+    assertThat(first.writeString()).isNotEqualTo(second.writeString());
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = {0, 0.5})
+  void shouldGenerateValidDocument(double dirtyShare) {
+    var document = AdtGekidGenerator.builder().seed(42).patients(50).dirtyShare(dirtyShare).build();
+
+    assertThat(
+            SchemaValidator.isValid(
+                document.writeString(), SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3))
+        .isTrue();
+  }
+
+  @Test
+  void shouldMapCleanDocumentIntoValidDocument() throws Exception {
+    var document = AdtGekidGenerator.builder().seed(42).patients(20).build().writeString();
+
+    try (var mapper = ObdsMapper.builder().build()) {
+      var obds = mapper.writeMappedXmlString(mapper.readValue(document, ADTGEKID.class));
+      assertThat(SchemaValidator.isValid(obds, SchemaValidator.SchemaVersion.OBDS_3_0_4)).isTrue();
+    }
+  }
+
+  @Test
+  void shouldRejectFlagWithoutValue() {
+    var exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> AdtGekidGenerator.parseArguments(new String[] {"--patients", "10", "--seed"}));
+
+    assertThat(exception).hasMessage("Missing value of --seed");
+  }
+
+  @Test
+  void shouldRejectInvalidValue() {
+    var exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> AdtGekidGenerator.parseArguments(new String[] {"--patients", "--seed"}));
+
+    assertThat(exception).hasMessage("Invalid value of --patients: --seed");
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AdtGekidReaderTest {
+
+  private ObdsMapper mapper;
+
+  @BeforeEach
+  void setUp() {
+    mapper = ObdsMapper.builder().disableSchemaValidation().build();
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "testdaten/obdsv2_1.xml",
+    "testdaten/obdsv2_nicht-mappbarer-patient.xml",
+    "testdaten/obdsv2_invalid-kv.xml",
+    "testdaten/obdsv2_zusatzitems.xml",
+  })
+  void shouldReadSamePatientsAsReadValue(String obdsV2File) throws Exception {
+    var obdsV2String =
+        new String(getClass().getClassLoader().getResource(obdsV2File).openStream().readAllBytes());
+    var expected = mapper.readValue(obdsV2String, ADTGEKID.class);
+
+    try (var reader =
+        mapper.adtGekidReader(getClass().getClassLoader().getResource(obdsV2File).openStream())) {
+      assertThat(reader.getSchemaVersion()).isEqualTo(expected.getSchemaVersion());
+      assertThat(reader.getAbsender()).usingRecursiveComparison().isEqualTo(expected.getAbsender());
+
+      var patients = reader.stream().toList();
+      assertThat(patients)
+          .usingRecursiveFieldByFieldElementComparator()
+          .containsExactlyElementsOf(expected.getMengePatient().getPatient());
+
+      assertThat(reader.getMengeMelder())
+          .usingRecursiveComparison()
+          .isEqualTo(expected.getMengeMelder());
+    }
+  }
+
+  @Test
+  void shouldNotProvideMengeMelderBeforeAllPatientsHaveBeenRead() throws Exception {
+    try (var reader =
+        mapper.adtGekidReader(
+            getClass().getClassLoader().getResource("testdaten/obdsv2_1.xml").openStream())) {
+      assertThrows(IllegalStateException.class, reader::getMengeMelder);
+      assertThat(reader.hasNext()).isTrue();
+    }
+  }
+
+  @Test
+  void shouldValidatePatientsWhileReading() throws Exception {
+    var validatingMapper = ObdsMapper.builder().build();
+
+    try (var reader =
+        validatingMapper.adtGekidReader(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_invalid-schema.xml")
+                .openStream())) {
+      assertThrows(SchemaValidatorException.class, reader::next);
+    }
+  }
+
+  @Test
+  void shouldSkipInvalidPatientsWhileReading() throws Exception {
+    var ignoringMapper = ObdsMapper.builder().ignoreInvalidPatients(true).build();
+
+    try (var reader =
+        ignoringMapper.adtGekidReader(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_invalid-patient.xml")
+                .openStream())) {
+      assertThat(reader.stream().map(patient -> patient.getPatientenStammdaten().getPatientID()))
+          .containsExactly("20001234", "20001236");
+      assertThat(reader.getMengeMelder()).isNotNull();
+
+      assertThat(reader.getInvalidPatients())
+          .singleElement()
+          .satisfies(
+              error -> {
+                assertThat(error.patientId()).isEqualTo("20001235");
+                assertThat(error.schemaVersion())
+                    .isEqualTo(SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3);
+                assertThat(error.lineNumber()).isEqualTo(59);
+                assertThat(error.message()).contains("Patienten_Frueherer_Name");
+              });
+    }
+  }
+
+  @Test
+  void shouldNotReadOtherDocuments() {
+    var xmlString =
+        "<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n"
+            + "<oBDS xmlns=\"http://www.basisdatensatz.de/oBDS/XML\" Schema_Version=\"3.0.4\"></oBDS>";
+
+    assertThrows(
+        IOException.class,
+        () ->
+            mapper.adtGekidReader(
+                new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8))));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class ContentHashTest {
+
+  private ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung meldung;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    var mapper = ObdsMapper.builder().build();
+    var obdsV2String =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_missing-meldung-id.xml")
+                .openStream()
+                .readAllBytes());
+    var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+    meldung = obdsv2.getMengePatient().getPatient().get(0).getMengeMeldung().getMeldung().get(0);
+  }
+
+  @Test
+  void shouldGenerateMeldungIdFromCanonicalContent() {
+    assertThat(ContentHash.meldungId(meldung))
+        .isEqualTo("6ad7ddc0c9cfee9b7676bcba9c313eb450fcf908df4a64633");
+  }
+
+  @Test
+  void shouldGenerateLegacyMeldungIdFromXml() {
+    assertThat(ContentHash.legacyMeldungId(meldung))
+        .isEqualTo("38c34f85b0af3ce0c693098e7652849c6e927c643e03c8a7a");
+  }
+
+  @Test
+  void shouldNotChangeMeldungIdIfEmptyListIsCreated() {
+    var mengeFruehereTumorerkrankung =
+        new ADTGEKID.MengePatient.Patient.MengeMeldung.Meldung.Diagnose
+            .MengeFruehereTumorerkrankung();
+    meldung.getDiagnose().setMengeFruehereTumorerkrankung(mengeFruehereTumorerkrankung);
+    var meldungId = ContentHash.meldungId(meldung);
+
+    // Getters of generated classes create an empty list on first access
+    assertThat(mengeFruehereTumorerkrankung.getFruehereTumorerkrankung()).isEmpty();
+
+    assertThat(ContentHash.meldungId(meldung)).isEqualTo(meldungId);
+  }
+
+  @Test
+  void shouldChangeMeldungIdIfContentChanges() {
+    var meldungId = ContentHash.meldungId(meldung);
+
+    meldung.getTumorzuordnung().setPrimaertumorICDCode("C17.2");
+
+    assertThat(ContentHash.meldungId(meldung)).isNotEqualTo(meldungId).hasSize(49);
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "10.06.2024,C17.1,TEST1727528-1",
+    "00.06.2024,C50.9,Müller_ÄÖÜß_€",
+    "01.01.2024,D09.0,😀",
+  })
+  void shouldGenerateTumorIdLikePreviousVersions(
+      String diagnosedatum, String icdCode, String meldungId) {
+    var expected =
+        DigestUtils.sha1Hex(String.format("%s_%s_%s", diagnosedatum, icdCode, meldungId))
+            .subSequence(0, 16);
+
+    assertThat(ContentHash.tumorId(diagnosedatum, icdCode, meldungId))
+        .isEqualTo(String.format("TID_%s", expected));
+  }
+}
@@ -32,8 +32,12 @@ import de.basisdatensatz.obds.v3.DatumTagOderMonatGenauTyp;
 import de.basisdatensatz.obds.v3.DatumTagOderMonatOderJahrOderNichtGenauTyp;
 import de.basisdatensatz.obds.v3.JNU;
 import de.basisdatensatz.obds.v3.TodTyp;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.Optional;
+import java.util.TimeZone;
 import java.util.stream.Stream;
+import javax.xml.datatype.DatatypeFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -84,6 +88,68 @@ class MapperUtilsTest {
                 expectedPrecision));
   }
 
+  @ParameterizedTest
+  @CsvSource({
+    "01.01.2024",
+    "31.12.1899",
+    "29.02.2024",
+    "29.02.2023",
+    "31.04.2024",
+    "30.03.2025",
+    "26.10.2025",
+    "00.07.2024",
+    "00.00.2024",
+  })
+  void shouldMapDateLikeGregorianCalendar(String obdsv2DateString) throws Exception {
+    var defaultTimeZone = TimeZone.getDefault();
+    try {
+      TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+
+      // Fields set on a cleared GregorianCalendar, as done before dates have been parsed by hand
+      var calendar = new GregorianCalendar();
+      calendar.clear();
+      calendar.set(Calendar.YEAR, Integer.parseInt(obdsv2DateString.substring(6)));
+      var month = Integer.parseInt(obdsv2DateString.substring(3, 5));
+      if (month > 0) {
+        calendar.set(Calendar.MONTH, month - 1);
+      }
+      var day = Integer.parseInt(obdsv2DateString.substring(0, 2));
+      if (day > 0) {
+        calendar.set(Calendar.DAY_OF_MONTH, day);
+      }
+      var expected = DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar);
+
+      assertThat(MapperUtils.mapDateString(obdsv2DateString))
+          .hasValueSatisfying(
+              actual ->
+                  assertThat(actual.getValue().toXMLFormat()).isEqualTo(expected.toXMLFormat()));
+      assertThat(MapperUtils.mapDateStringGenau(obdsv2DateString))
+          .hasValueSatisfying(
+              actual ->
+                  assertThat(actual.getValue().toXMLFormat()).isEqualTo(expected.toXMLFormat()));
+    } finally {
+      TimeZone.setDefault(defaultTimeZone);
+    }
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "1.01.2024",
+    "01.1.2024",
+    "01.01.24",
+    "32.01.2024",
+    "01.13.2024",
+    "01.01.1799",
+    "01.01.2100",
+    "01-01-2024",
+    "0a.01.2024",
+    "'01.01.2024 '",
+  })
+  void shouldNotParseInvalidDateString(String obdsv2DateString) {
+    assertThat(MapperUtils.parseDateDigits(obdsv2DateString)).isNegative();
+    assertThat(obdsv2DateString).doesNotMatch(MapperUtils.OBDS2_DATE_REGEX);
+  }
+
   @Test
   void shouldNotMapDateGenau() {
     var actual = MapperUtils.mapDateStringGenau("somethingbad");
@@ -1,6 +1,12 @@
 package io.github.bzkf.obds2toobds3;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS.MengePatient.Patient.MengeMeldung.Meldung;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 
 class MeldungMapperTest {
 
@@ -10,4 +16,28 @@ class MeldungMapperTest {
   void setUp() {
     this.mapper = new MeldungMapper(false, false);
   }
+
+  @ParameterizedTest
+  @CsvSource({"testdaten/obdsv2_verlauf.xml,4", "testdaten/obdsv2_op_1.xml,2"})
+  void shouldCopyTumorzuordnungIntoEachMeldung(String obdsV2File, int expectedMeldungen)
+      throws Exception {
+    var obdsv2 =
+        ObdsMapper.builder()
+            .build()
+            .readValue(
+                getClass().getClassLoader().getResource(obdsV2File).openStream(), ADTGEKID.class);
+    var source = obdsv2.getMengePatient().getPatient().getFirst().getMengeMeldung().getMeldung();
+
+    var meldungen = mapper.map(source.getFirst());
+
+    assertThat(meldungen).hasSize(expectedMeldungen);
+    var tumorzuordnung = meldungen.getFirst().getTumorzuordnung();
+    assertThat(tumorzuordnung).isNotNull();
+    assertThat(meldungen)
+        .extracting(Meldung::getTumorzuordnung)
+        .allSatisfy(
+            actual -> assertThat(actual).usingRecursiveComparison().isEqualTo(tumorzuordnung))
+        // Each Meldung has its own copy
+        .doesNotHaveDuplicates();
+  }
 }
@@ -28,10 +28,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.SAXParseException;
 
 class ObdsMapperTest {
 
@@ -101,6 +111,82 @@ class ObdsMapperTest {
           assertThrows(UnmappableItemException.class, () -> mapper.writeMappedXmlString(obdsv2));
       assertThat(exception).hasMessage(message);
     }
+
+    @ParameterizedTest
+    @CsvSource({
+      "testdaten/obdsv2_nicht-mappbarer-patient.xml,1,INCOMPLETE_DIAGNOSE,TEST1727530,ADT_GEKID tumorzuordung should not be null at this point - required for oBDS v3",
+      "testdaten/obdsv2_diagnose-zu-tumorzuordung-keinetumorid.xml,0,MISSING_TUMOR_ID,TEST1727528-1,ADT_GEKID attribute 'Tumor_ID' must not be null at this point - required for oBDS v3",
+    })
+    void shouldRejectUnmappablePatientWithoutThrowing(
+        String obdsV2File, int patientIndex, DropReason reason, String meldungId, String message)
+        throws Exception {
+      var obdsV2String =
+          new String(
+              getClass().getClassLoader().getResource(obdsV2File).openStream().readAllBytes());
+
+      var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+      var outcome =
+          mapper.mapPatientOutcome(obdsv2.getMengePatient().getPatient().get(patientIndex));
+
+      assertThat(outcome.isMapped()).isFalse();
+      assertThat(outcome.value()).isEmpty();
+      assertThat(outcome.rejection())
+          .contains(new MappingOutcome.Rejection(reason, meldungId, message));
+      var exception = assertThrows(UnmappableItemException.class, outcome::orElseThrow);
+      assertThat(exception).hasMessage(message);
+    }
+
+    @Test
+    void shouldNotReadInvalidObdsFile() throws Exception {
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_invalid-schema.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      var exception =
+          assertThrows(
+              SchemaValidatorException.class, () -> mapper.readValue(obdsV2String, ADTGEKID.class));
+      assertThat(exception).hasCauseInstanceOf(SAXParseException.class);
+      assertThat(exception.getCause()).hasMessageContaining("Patienten_Frueherer_Name");
+    }
+
+    @Test
+    void shouldReadValidPatientsOfFileWithInvalidPatient() throws Exception {
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_invalid-patient.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      var ignoringMapper = ObdsMapper.builder().ignoreInvalidPatients(true).build();
+      var obdsv2 = ignoringMapper.readValue(obdsV2String, ADTGEKID.class);
+
+      assertThat(obdsv2.getMengePatient().getPatient())
+          .map(patient -> patient.getPatientenStammdaten().getPatientID())
+          .containsExactly("20001234", "20001236");
+      assertThat(obdsv2.getMengeMelder()).isNotNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"testdaten/obdsv2_1.xml", "testdaten/obdsv2_verlauf.xml"})
+    void shouldReadSameObdsFileFromInputStream(String obdsV2File) throws Exception {
+      var obdsV2String =
+          new String(
+              getClass().getClassLoader().getResource(obdsV2File).openStream().readAllBytes());
+
+      var obdsv2 =
+          mapper.readValue(
+              getClass().getClassLoader().getResource(obdsV2File).openStream(), ADTGEKID.class);
+
+      assertThat(obdsv2)
+          .usingRecursiveComparison()
+          .isEqualTo(mapper.readValue(obdsV2String, ADTGEKID.class));
+    }
   }
 
   @Nested
@@ -132,6 +218,60 @@ class ObdsMapperTest {
 
       assertThat(mapper.writeMappedXmlString(obdsv2)).isEqualTo(obdsV3String);
     }
+
+    @Test
+    void shouldRejectPatientWithoutMappableMeldung() throws Exception {
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_nicht-mappbarer-patient.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+      var mappedOutcome = mapper.mapPatientOutcome(obdsv2.getMengePatient().getPatient().get(0));
+      var rejectedOutcome = mapper.mapPatientOutcome(obdsv2.getMengePatient().getPatient().get(1));
+
+      assertThat(mappedOutcome.isMapped()).isTrue();
+      assertThat(mappedOutcome.value())
+          .hasValueSatisfying(patient -> assertThat(patient.getPatientID()).isEqualTo("20001234"));
+      assertThat(rejectedOutcome.isMapped()).isFalse();
+      assertThat(rejectedOutcome.rejection())
+          .hasValueSatisfying(
+              rejection ->
+                  assertThat(rejection.reason()).isEqualTo(DropReason.NO_MAPPABLE_MELDUNG));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+      "testdaten/obdsv2_keine-tumorzuordung.xml,1,1,2,1,INCOMPLETE_DIAGNOSE",
+      "testdaten/obdsv2_nicht-mappbarer-patient.xml,2,1,2,1,INCOMPLETE_DIAGNOSE",
+      "testdaten/obdsv2_diagnose-zu-tumorzuordung-keinetumorid.xml,1,0,2,0,UNMAPPABLE_PATIENT"
+    })
+    void shouldCountPatientsAndMeldungen(
+        String obdsV2File,
+        long patientsIn,
+        long patientsOut,
+        long meldungenIn,
+        long meldungenOut,
+        DropReason dropReason)
+        throws Exception {
+      var obdsV2String =
+          new String(
+              getClass().getClassLoader().getResource(obdsV2File).openStream().readAllBytes());
+
+      var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+      var result = mapper.mapWithResult(obdsv2);
+
+      assertThat(result.patientsIn()).isEqualTo(patientsIn);
+      assertThat(result.patientsOut()).isEqualTo(patientsOut);
+      assertThat(result.meldungenIn()).isEqualTo(meldungenIn);
+      assertThat(result.meldungenOut()).isEqualTo(meldungenOut);
+      assertThat(result.droppedMeldungen()).containsOnlyKeys(dropReason);
+      assertThat(result.droppedMeldungen(dropReason)).isEqualTo(meldungenIn - meldungenOut);
+      assertThat(result.obds().getMengePatient().getPatient()).hasSize((int) patientsOut);
+    }
   }
 
   @Nested
@@ -163,6 +303,43 @@ class ObdsMapperTest {
 
       assertThat(mappedObdsv3String).isEqualTo(obdsV3String);
     }
+
+    @Test
+    void shouldGenerateMeldungIdOfPreviousVersionsUsingLegacyHash() throws Exception {
+      var legacyMapper = ObdsMapper.builder().fixMissingId(true).legacyMeldungIdHash(true).build();
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_missing-meldung-id.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      var obdsv3 = legacyMapper.map(legacyMapper.readValue(obdsV2String, ADTGEKID.class));
+
+      assertThat(obdsv3.getMengePatient().getPatient().get(0).getMengeMeldung().getMeldung().get(0))
+          .extracting(OBDS.MengePatient.Patient.MengeMeldung.Meldung::getMeldungID)
+          .isEqualTo("38c34f85b0af3ce0c693098e7652849c6e927c643e03c8a7a");
+    }
+
+    @Test
+    void shouldNotSetGeneratedMeldungIdOnSourceDocument() throws Exception {
+      var obdsv2 =
+          mapper.readValue(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_missing-meldung-id.xml")
+                  .openStream(),
+              ADTGEKID.class);
+      var sourceMeldung =
+          obdsv2.getMengePatient().getPatient().get(0).getMengeMeldung().getMeldung().get(0);
+      var sourceMeldungId = sourceMeldung.getMeldungID();
+
+      var mappedObdsv3String = mapper.writeMappedXmlString(obdsv2);
+
+      assertThat(sourceMeldung.getMeldungID()).isEqualTo(sourceMeldungId);
+      assertThat(mapper.writeMappedXmlString(obdsv2)).isEqualTo(mappedObdsv3String);
+    }
   }
 
   @Nested
@@ -199,4 +376,214 @@ class ObdsMapperTest {
       assertThat(mappedObdsv3String).isEqualTo(obdsV3String);
     }
   }
+
+  @Nested
+  class ParallelObdsMapperTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 16})
+    void shouldMapPatientsConcurrentlyInInputOrder(int parallelism) throws Exception {
+      var sequentialMapper = ObdsMapper.builder().disableSchemaValidation().build();
+      try (var parallelMapper =
+          ObdsMapper.builder().disableSchemaValidation().parallelism(parallelism).build()) {
+
+        var obdsv2Files =
+            new String[] {
+              "testdaten/obdsv2_1.xml",
+              "testdaten/obdsv2_verlauf.xml",
+              "testdaten/obdsv2_tumorkonferenz.xml",
+              "testdaten/obdsv2_op_1.xml",
+              "testdaten/obdsv2_st_1.xml",
+              "testdaten/obdsv2_syst_1.xml",
+              "testdaten/obdsv2_invalid-kv.xml",
+              "testdaten/obdsv2_missing-meldung-id.xml"
+            };
+        var sequentialObdsv2 = readPatients(sequentialMapper, obdsv2Files);
+        var parallelObdsv2 = readPatients(parallelMapper, obdsv2Files);
+
+        var sequentialObdsv3 = sequentialMapper.map(sequentialObdsv2);
+        var parallelObdsv3 = parallelMapper.map(parallelObdsv2);
+
+        assertThat(parallelObdsv3.getMengePatient().getPatient())
+            .extracting(OBDS.MengePatient.Patient::getPatientID)
+            .containsExactlyElementsOf(
+                sequentialObdsv2.getMengePatient().getPatient().stream()
+                    .map(patient -> patient.getPatientenStammdaten().getPatientID())
+                    .toList());
+        assertThat(parallelMapper.writeXmlString(parallelObdsv3))
+            .isEqualTo(sequentialMapper.writeXmlString(sequentialObdsv3));
+      }
+    }
+
+    @Test
+    void shouldMapObdsFileIgnoringUnmappableItemsUsingVirtualThreads() throws Exception {
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_nicht-mappbarer-patient.xml")
+                  .openStream()
+                  .readAllBytes());
+      var obdsV3String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv3_nicht-mappbarer-patient.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var mapper = ObdsMapper.builder().ignoreUnmappable(true).executor(executor).build();
+
+        var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+
+        assertThat(mapper.writeMappedXmlString(obdsv2)).isEqualTo(obdsV3String);
+      }
+    }
+
+    @Test
+    void shouldThrowUnmappableItemExceptionOfUnmappablePatient() throws Exception {
+      var obdsV2String =
+          new String(
+              getClass()
+                  .getClassLoader()
+                  .getResource("testdaten/obdsv2_nicht-mappbarer-patient.xml")
+                  .openStream()
+                  .readAllBytes());
+
+      try (var mapper = ObdsMapper.builder().parallelism(2).build()) {
+        var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+
+        var exception = assertThrows(UnmappableItemException.class, () -> mapper.map(obdsv2));
+        assertThat(exception)
+            .hasMessage(
+                "ADT_GEKID tumorzuordung should not be null at this point - required for oBDS v3");
+      }
+    }
+
+    @Test
+    void shouldShutDownOwnedPoolOnClose() throws Exception {
+      var mapper = ObdsMapper.builder().parallelism(2).build();
+      var obdsv2 = readPatients(mapper, "testdaten/obdsv2_1.xml");
+      assertThat(mapper.map(obdsv2).getMengePatient().getPatient()).isNotEmpty();
+
+      mapper.close();
+
+      assertThrows(RejectedExecutionException.class, () -> mapper.map(obdsv2));
+    }
+
+    @Test
+    void shouldNotShutDownGivenExecutorOnClose() {
+      var executor = Executors.newSingleThreadExecutor();
+      try {
+        ObdsMapper.builder().executor(executor).build().close();
+
+        assertThat(executor.isShutdown()).isFalse();
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @Test
+    void shouldNotAllowParallelismLessThanOne() {
+      var builder = ObdsMapper.builder();
+
+      assertThrows(IllegalArgumentException.class, () -> builder.parallelism(0));
+    }
+
+    private ADTGEKID readPatients(ObdsMapper mapper, String... obdsV2Files) throws Exception {
+      ADTGEKID result = null;
+      // Repeat the patients, so there are more patients than threads
+      for (int i = 0; i < 10; i++) {
+        for (var obdsV2File : obdsV2Files) {
+          var obdsv2 =
+              mapper.readValue(
+                  getClass().getClassLoader().getResource(obdsV2File).openStream(), ADTGEKID.class);
+          if (null == result) {
+            result = obdsv2;
+          } else {
+            result.getMengePatient().getPatient().addAll(obdsv2.getMengePatient().getPatient());
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  @Nested
+  class ConcurrentObdsMapperTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 25;
+
+    @Test
+    void shouldMapObdsFilesUsingSharedMapperConcurrently() throws Exception {
+      var defaultMapper = ObdsMapper.builder().build();
+      var ignoringMapper = ObdsMapper.builder().ignoreUnmappable(true).build();
+
+      var tasks = new ArrayList<Callable<Void>>();
+      var start = new CountDownLatch(1);
+      for (int thread = 0; thread < THREADS; thread++) {
+        var offset = thread;
+        tasks.add(
+            () -> {
+              start.await();
+              for (int i = 0; i < ITERATIONS; i++) {
+                switch ((offset + i) % 5) {
+                  case 0 ->
+                      assertMapped(
+                          defaultMapper, "testdaten/obdsv2_1.xml", "testdaten/obdsv3_1.xml");
+                  case 1 ->
+                      assertMapped(
+                          defaultMapper,
+                          "testdaten/obdsv2_verlauf.xml",
+                          "testdaten/obdsv3_verlauf.xml");
+                  case 2 ->
+                      assertMapped(
+                          defaultMapper,
+                          "testdaten/obdsv2_syst_1.xml",
+                          "testdaten/obdsv3_syst_1.xml");
+                  case 3 ->
+                      assertMapped(
+                          defaultMapper,
+                          "testdaten/obdsv2_missing-meldung-id.xml",
+                          "testdaten/obdsv3_missing-meldung-id.xml");
+                  default ->
+                      assertMapped(
+                          ignoringMapper,
+                          "testdaten/obdsv2_nicht-mappbarer-patient.xml",
+                          "testdaten/obdsv3_nicht-mappbarer-patient.xml");
+                }
+              }
+              return null;
+            });
+      }
+
+      var executor = Executors.newFixedThreadPool(THREADS);
+      try {
+        var futures = tasks.stream().map(executor::submit).toList();
+        start.countDown();
+        for (var future : futures) {
+          // Rethrows assertion errors of the mapping threads
+          future.get(1, TimeUnit.MINUTES);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    private void assertMapped(ObdsMapper mapper, String obdsV2File, String obdsV3File)
+        throws Exception {
+      var obdsV2String =
+          new String(
+              getClass().getClassLoader().getResource(obdsV2File).openStream().readAllBytes());
+      var obdsV3String =
+          new String(
+              getClass().getClassLoader().getResource(obdsV3File).openStream().readAllBytes());
+
+      var obdsv2 = mapper.readValue(obdsV2String, ADTGEKID.class);
+
+      assertThat(mapper.writeMappedXmlString(obdsv2)).isEqualTo(obdsV3String);
+    }
+  }
 }
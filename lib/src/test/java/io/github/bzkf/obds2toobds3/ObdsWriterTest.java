@@ -0,0 +1,270 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.xml.sax.SAXParseException;
+
+class ObdsWriterTest {
+
+  private ObdsMapper mapper;
+
+  @BeforeEach
+  void setUp() {
+    mapper = ObdsMapper.builder().build();
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "testdaten/obdsv2_1.xml,testdaten/obdsv3_1.xml",
+    "testdaten/obdsv2_verlauf.xml,testdaten/obdsv3_verlauf.xml",
+    "testdaten/obdsv2_tumorkonferenz.xml,testdaten/obdsv3_tumorkonferenz.xml",
+    "testdaten/obdsv2_modul_prostata.xml,testdaten/obdsv3_modul_prostata.xml",
+    "testdaten/obdsv2_zusatzitems.xml,testdaten/obdsv3_zusatzitems.xml",
+    "testdaten/obdsv2_histologie.xml,testdaten/obdsv3_histologie.xml",
+    "testdaten/obdsv2_ohne-adresse.xml,testdaten/obdsv3_ohne-adresse.xml",
+    "testdaten/obdsv2_pkv.xml,testdaten/obdsv3_pkv.xml",
+    "testdaten/obdsv2_op_1.xml,testdaten/obdsv3_op_1.xml",
+    "testdaten/obdsv2_st_1.xml,testdaten/obdsv3_st_1.xml",
+    "testdaten/obdsv2_syst_1.xml,testdaten/obdsv3_syst_1.xml",
+    "testdaten/obdsv2_missing-meldung-id.xml,testdaten/obdsv3_missing-meldung-id.xml",
+  })
+  void shouldWriteSameDocumentAsWriteXmlString(String obdsV2File, String obdsV3File)
+      throws Exception {
+    var obdsV3String =
+        new String(
+            getClass().getClassLoader().getResource(obdsV3File).openStream().readAllBytes(),
+            StandardCharsets.UTF_8);
+
+    var outputStream = new ByteArrayOutputStream();
+    mapper.writeMappedXml(
+        getClass().getClassLoader().getResource(obdsV2File).openStream(), outputStream);
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(obdsV3String);
+  }
+
+  @Test
+  void shouldWriteMappedPatientsOneByOne() throws Exception {
+    var obdsV2String =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_1.xml")
+                .openStream()
+                .readAllBytes(),
+            StandardCharsets.UTF_8);
+    var obds = mapper.map(mapper.readValue(obdsV2String, ADTGEKID.class));
+
+    var outputStream = new ByteArrayOutputStream();
+    try (var writer = mapper.obdsWriter(outputStream)) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      for (var patient : obds.getMengePatient().getPatient()) {
+        writer.writePatient(patient);
+      }
+      writer.writeFooter(obds.getMengeMelder());
+    }
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8))
+        .isEqualTo(mapper.writeXmlString(obds));
+  }
+
+  @Test
+  void shouldWriteHeaderAfterFirstPatientWithoutMeldedatum() throws Exception {
+    // Copies the single patient of the test data without its Meldedatum - no patient provides one
+    var document =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_1.xml")
+                .openStream()
+                .readAllBytes(),
+            StandardCharsets.UTF_8);
+    var start = document.indexOf("<Patient>");
+    var end = document.indexOf("</Patient>") + "</Patient>".length();
+    var patient = document.substring(start, end).replace("<Meldedatum>11.06.2024</Meldedatum>", "");
+    var patients = new StringBuilder();
+    for (int i = 1; i <= 200; i++) {
+      patients.append(
+          patient
+              .replace("Patient_ID=\"20001234\"", "Patient_ID=\"" + (30000000 + i) + "\"")
+              .replace("Meldung_ID=\"TEST1727528\"", "Meldung_ID=\"TEST" + i + "\""));
+    }
+    var input =
+        new ByteArrayInputStream(
+            (document.substring(0, start) + patients + document.substring(end))
+                .getBytes(StandardCharsets.UTF_8));
+    var length = input.available();
+
+    var remainingAtHeader = new AtomicInteger(-1);
+    var outputStream =
+        new ByteArrayOutputStream() {
+          @Override
+          public void write(byte[] b, int off, int len) {
+            remainingAtHeader.compareAndSet(-1, input.available());
+            super.write(b, off, len);
+          }
+        };
+    var uncheckedMapper = ObdsMapper.builder().disableSchemaValidation().build();
+    uncheckedMapper.writeMappedXml(input, outputStream);
+
+    // Only the first patient is held back until the header has been written
+    assertThat(remainingAtHeader.get()).isGreaterThan(length / 2);
+    var obds =
+        uncheckedMapper.readValue(new ByteArrayInputStream(outputStream.toByteArray()), OBDS.class);
+    var meldedatum = obds.getMeldedatum();
+    assertThat(LocalDate.of(meldedatum.getYear(), meldedatum.getMonth(), meldedatum.getDay()))
+        .isEqualTo(LocalDate.now());
+    assertThat(obds.getMengePatient().getPatient()).hasSize(200);
+  }
+
+  @Test
+  void shouldNotWriteInvalidDocument() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    obds.setAbsender(null);
+
+    var exception = assertThrows(SchemaValidatorException.class, () -> mapper.writeXmlString(obds));
+    assertThat(exception).hasCauseInstanceOf(SAXParseException.class);
+    assertThat(exception.getCause()).hasMessageContaining("Absender");
+  }
+
+  @Test
+  void shouldNotWriteInvalidPatient() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    var patient = obds.getMengePatient().getPatient().getFirst();
+    patient.setPatientenStammdaten(null);
+
+    try (var writer = mapper.obdsWriter(new ByteArrayOutputStream())) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      assertThrows(SchemaValidatorException.class, () -> writer.writePatient(patient));
+    }
+  }
+
+  @Test
+  void shouldNotPassInvalidContentOn() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    var patient = obds.getMengePatient().getPatient().getFirst();
+    patient.setPatientenStammdaten(null);
+
+    var outputStream = new ByteArrayOutputStream();
+    try (var writer = mapper.obdsWriter(outputStream)) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      assertThrows(SchemaValidatorException.class, () -> writer.writePatient(patient));
+      writer.flush();
+    }
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8))
+        .contains("<Patient Patient_ID=\"20001234\"")
+        .doesNotContain("<Menge_Meldung");
+  }
+
+  @Test
+  void shouldNotWriteMengePatientIfNull() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    obds.setMengePatient(null);
+
+    assertThat(ObdsMapper.builder().disableSchemaValidation().build().writeXmlString(obds))
+        .contains("<Menge_Melder")
+        .doesNotContain("Menge_Patient");
+  }
+
+  @Test
+  void shouldDropInvalidPatientAndWriteRemainingPatients() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    var validPatient = obds.getMengePatient().getPatient().getFirst();
+    var invalidPatient =
+        readObds("testdaten/obdsv3_1.xml").getMengePatient().getPatient().getFirst();
+    invalidPatient.setPatientID("20001235");
+    invalidPatient.setPatientenStammdaten(null);
+    invalidPatient.getMengeMeldung().getMeldung().getFirst().setMeldungID("TEST1727529");
+
+    var outputStream = new ByteArrayOutputStream();
+    try (var writer =
+        ObdsMapper.builder().ignoreInvalidPatients(true).build().obdsWriter(outputStream)) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      writer.writePatient(invalidPatient);
+      writer.writePatient(validPatient);
+      writer.writeFooter(obds.getMengeMelder());
+
+      assertThat(writer.getInvalidPatients())
+          .singleElement()
+          .satisfies(
+              error -> {
+                assertThat(error.patientId()).isEqualTo("20001235");
+                assertThat(error.schemaVersion())
+                    .isEqualTo(SchemaValidator.SchemaVersion.OBDS_3_0_4);
+                assertThat(error.lineNumber()).isPositive();
+                assertThat(error.message()).contains("Patienten_Stammdaten");
+              });
+    }
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8))
+        .isEqualTo(mapper.writeXmlString(obds));
+  }
+
+  @Test
+  void shouldNotIgnoreInvalidDocument() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    obds.setAbsender(null);
+
+    var ignoringMapper = ObdsMapper.builder().ignoreInvalidPatients(true).build();
+    assertThrows(SchemaValidatorException.class, () -> ignoringMapper.writeXmlString(obds));
+  }
+
+  @Test
+  void shouldWriteInvalidDocumentWithoutSchemaValidation() throws Exception {
+    var obds = readObds("testdaten/obdsv3_1.xml");
+    obds.setAbsender(null);
+
+    assertThat(ObdsMapper.builder().disableSchemaValidation().build().writeXmlString(obds))
+        .doesNotContain("<Absender");
+  }
+
+  @Test
+  void shouldNotWritePatientBeforeHeader() throws Exception {
+    try (var writer = mapper.obdsWriter(new ByteArrayOutputStream())) {
+      assertThrows(IllegalStateException.class, () -> writer.writePatient(null));
+    }
+  }
+
+  private OBDS readObds(String obdsV3File) throws Exception {
+    return ObdsMapper.builder()
+        .disableSchemaValidation()
+        .build()
+        .readValue(getClass().getClassLoader().getResource(obdsV3File).openStream(), OBDS.class);
+  }
+}
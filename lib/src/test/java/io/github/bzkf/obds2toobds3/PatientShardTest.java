@@ -0,0 +1,208 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.basisdatensatz.obds.v2.ADTGEKID;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PatientShardTest {
+
+  private static final int PATIENTS = 20;
+
+  private static String adtGekid;
+
+  @BeforeAll
+  static void setUp() throws IOException {
+    // Copies the single patient of the test data with distinct IDs
+    var document =
+        new String(
+            PatientShardTest.class
+                .getClassLoader()
+                .getResource("testdaten/obdsv2_1.xml")
+                .openStream()
+                .readAllBytes(),
+            StandardCharsets.UTF_8);
+    var start = document.indexOf("<Patient>");
+    var end = document.indexOf("</Patient>") + "</Patient>".length();
+    var patient = document.substring(start, end);
+    var patients = new StringBuilder();
+    for (int i = 1; i <= PATIENTS; i++) {
+      patients.append(
+          patient
+              .replace("Patient_ID=\"20001234\"", "Patient_ID=\"" + (30000000 + i) + "\"")
+              .replace("Meldung_ID=\"TEST1727528\"", "Meldung_ID=\"TEST" + i + "\""));
+    }
+    adtGekid = document.substring(0, start) + patients + document.substring(end);
+  }
+
+  @Test
+  void shouldParseShard() {
+    assertThat(PatientShard.parse("2/4")).isEqualTo(new PatientShard(2, 4));
+    assertThat(PatientShard.parse("2/4")).hasToString("2/4");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"0/4", "5/4", "1/0", "1", "a/4", "1/2/3"})
+  void shouldNotParseInvalidShard(String value) {
+    assertThrows(IllegalArgumentException.class, () -> PatientShard.parse(value));
+  }
+
+  @Test
+  void shouldAssignPatientsByStableHash() {
+    // The assignment must not change between versions, otherwise nodes disagree on shards
+    assertThat(
+            IntStream.rangeClosed(1, 8).map(i -> PatientShard.of(String.valueOf(30000000 + i), 4)))
+        .containsExactly(2, 2, 2, 1, 2, 3, 1, 1);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 5})
+  void shouldReadEachPatientInExactlyOneShard(int count) throws Exception {
+    var patientIds = new ArrayList<String>();
+    for (int index = 1; index <= count; index++) {
+      var shard = new PatientShard(index, count);
+      try (var reader = mapperOf(shard).adtGekidReader(input())) {
+        var shardPatientIds =
+            reader.stream()
+                .map(ADTGEKID.MengePatient.Patient::getPatientenStammdaten)
+                .map(ADTGEKID.MengePatient.Patient.PatientenStammdaten::getPatientID)
+                .toList();
+        assertThat(shardPatientIds).allMatch(shard::includes);
+        assertThat(reader.getMengeMelder().getMelder()).hasSize(1);
+        patientIds.addAll(shardPatientIds);
+      }
+    }
+
+    assertThat(patientIds)
+        .containsExactlyInAnyOrderElementsOf(
+            IntStream.rangeClosed(1, PATIENTS)
+                .mapToObj(i -> String.valueOf(30000000 + i))
+                .toList());
+  }
+
+  @Test
+  void shouldBindSelectedPatientLikeUnshardedReader() throws Exception {
+    try (var reader = ObdsMapper.builder().build().adtGekidReader(input());
+        var shardReader = mapperOf(new PatientShard(1, 1)).adtGekidReader(input())) {
+      assertThat(shardReader.readAll()).usingRecursiveComparison().isEqualTo(reader.readAll());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 5})
+  void shouldMergeShardsIntoSameDocumentRegardlessOfShardCount(int count) throws Exception {
+    var expected = new ByteArrayOutputStream();
+    ObdsMapper.builder().build().writeMappedXml(input(), expected);
+
+    var merged = new ByteArrayOutputStream();
+    ObdsMapper.builder().build().mergeShards(input(), convertShards(count), merged);
+
+    assertThat(merged.toString(StandardCharsets.UTF_8))
+        .isEqualTo(expected.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void shouldWriteNothingForShardWithoutPatients() throws Exception {
+    var shard = new PatientShard(PatientShard.of("20001234", 2) % 2 + 1, 2);
+    var mapper = mapperOf(shard);
+
+    try (var reader =
+        mapper.adtGekidReader(
+            getClass().getClassLoader().getResource("testdaten/obdsv2_1.xml").openStream())) {
+      assertThat(reader.hasNext()).isFalse();
+      assertThat(reader.isEmptyShard()).isTrue();
+    }
+
+    var outputStream = new ByteArrayOutputStream();
+    mapper.writeMappedXml(
+        getClass().getClassLoader().getResource("testdaten/obdsv2_1.xml").openStream(),
+        outputStream);
+    assertThat(outputStream.size()).isZero();
+  }
+
+  @Test
+  void shouldMergeShardsIfThereAreMoreShardsThanPatients() throws Exception {
+    var expected = new ByteArrayOutputStream();
+    ObdsMapper.builder().build().writeMappedXml(input(), expected);
+
+    var merged = new ByteArrayOutputStream();
+    ObdsMapper.builder().build().mergeShards(input(), convertShards(2 * PATIENTS), merged);
+
+    assertThat(merged.toString(StandardCharsets.UTF_8))
+        .isEqualTo(expected.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void shouldNotMergeEmptyShardsOnly() {
+    var shards = List.<InputStream>of(new ByteArrayInputStream(new byte[0]));
+
+    assertThrows(
+        IOException.class,
+        () ->
+            ObdsMapper.builder().build().mergeShards(input(), shards, new ByteArrayOutputStream()));
+  }
+
+  @Test
+  void shouldNotMergeShardsInWrongOrder() throws Exception {
+    var shards = new ArrayList<>(convertShards(2));
+    shards.add(shards.removeFirst());
+
+    assertThrows(
+        IOException.class,
+        () ->
+            ObdsMapper.builder().build().mergeShards(input(), shards, new ByteArrayOutputStream()));
+  }
+
+  private static List<InputStream> convertShards(int count) throws IOException {
+    var shards = new ArrayList<InputStream>();
+    for (int index = 1; index <= count; index++) {
+      var outputStream = new ByteArrayOutputStream();
+      mapperOf(new PatientShard(index, count)).writeMappedXml(input(), outputStream);
+      shards.add(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+    return shards;
+  }
+
+  private static ObdsMapper mapperOf(PatientShard shard) {
+    return ObdsMapper.builder().patientShard(shard).build();
+  }
+
+  private static InputStream input() {
+    return new ByteArrayInputStream(adtGekid.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+class SchemaPatternsTest {
+
+  @Test
+  void shouldLoadPatternsOnce() {
+    assertThat(SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4))
+        .isSameAs(SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4));
+  }
+
+  @ParameterizedTest
+  @EnumSource(
+      value = SchemaValidator.SchemaVersion.class,
+      names = {"ADT_GEKID_2_2_3", "OBDS_3_0_4"})
+  void shouldProvidePatternsOfAllNamedSimpleTypes(SchemaValidator.SchemaVersion schemaVersion)
+      throws Exception {
+    var doc =
+        DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(getClass().getClassLoader().getResourceAsStream(schemaVersion.getSchemaFile()));
+    var patternFacets =
+        (NodeList)
+            XPathFactory.newInstance()
+                .newXPath()
+                .evaluate(
+                    "//*[local-name()='simpleType'][@name]/*[local-name()='restriction']/*[local-name()='pattern'][1]",
+                    doc,
+                    XPathConstants.NODESET);
+
+    var expected = new HashMap<String, String>();
+    for (int i = 0; i < patternFacets.getLength(); i++) {
+      var patternFacet = (Element) patternFacets.item(i);
+      var simpleType = (Element) patternFacet.getParentNode().getParentNode();
+      expected.put(simpleType.getAttribute("name"), patternFacet.getAttribute("value"));
+    }
+
+    assertThat(expected).isNotEmpty();
+    var schemaPatterns = SchemaPatterns.of(schemaVersion);
+    expected.forEach(
+        (datatypeName, pattern) ->
+            assertThat(schemaPatterns.pattern(datatypeName))
+                .hasValueSatisfying(actual -> assertThat(actual.pattern()).isEqualTo(pattern)));
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "ISO3166Alpha2Code_Typ,DE,true",
+    "ISO3166Alpha2Code_Typ,DEU,false",
+    "Ziffern9_Typ,123456789,true",
+    "Ziffern9_Typ,12345678,false",
+  })
+  void shouldProvidePatternOfDatatype(String datatypeName, String value, boolean expected) {
+    var pattern = SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4).pattern(datatypeName);
+
+    assertThat(pattern).isPresent();
+    assertThat(pattern.get().matcher(value).matches()).isEqualTo(expected);
+  }
+
+  @Test
+  void shouldProvidePatternOfAdtGekidDatatype() {
+    assertThat(SchemaPatterns.of(SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3).pattern("JNU_Typ"))
+        .isEmpty();
+    assertThat(SchemaPatterns.of(SchemaValidator.SchemaVersion.ADT_GEKID_2_2_3).pattern("ICD_Typ"))
+        .isPresent();
+  }
+
+  @Test
+  void shouldNotProvidePatternOfDatatypeWithoutPattern() {
+    var schemaPatterns = SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4);
+
+    assertThat(schemaPatterns.pattern("FreitextID_Typ")).isEmpty();
+    assertThat(schemaPatterns.pattern("Unknown_Typ")).isEmpty();
+    assertThat(schemaPatterns.removeDisallowedCharacters("Unknown_Typ", "Test")).isEmpty();
+  }
+
+  @Test
+  void shouldNotProvidePatternsOfMissingSchema() {
+    assertThat(
+            SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_3).pattern("datatypeBtrimmed"))
+        .isEmpty();
+  }
+
+  @Test
+  void shouldRemoveDisallowedCharacters() {
+    assertThat(
+            SchemaPatterns.of(SchemaValidator.SchemaVersion.OBDS_3_0_4)
+                .removeDisallowedCharacters("datatypeBtrimmed", "Das ist ein パウルTest"))
+        .hasValue("Das ist ein Test");
+  }
+}
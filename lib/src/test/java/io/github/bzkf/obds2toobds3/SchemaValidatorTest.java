@@ -27,6 +27,9 @@ package io.github.bzkf.obds2toobds3;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -89,6 +92,56 @@ class SchemaValidatorTest {
     assertThat(cause).hasMessageContaining("oBDS");
   }
 
+  @Test
+  void shouldCompileSchemaOnce() {
+    assertThat(SchemaValidator.schema(SchemaValidator.SchemaVersion.OBDS_3_0_4))
+        .isSameAs(SchemaValidator.schema(SchemaValidator.SchemaVersion.OBDS_3_0_4));
+  }
+
+  @Test
+  void shouldValidateAfterInvalidTestdata() throws Exception {
+    var invalidXmlString =
+        "<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n"
+            + "<oBDS xmlns=\"http://www.basisdatensatz.de/oBDS/XML\" Schema_Version=\"3.0.3\"></oBDS>";
+    var xmlString =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv3_1.xml")
+                .openStream()
+                .readAllBytes());
+
+    assertThrows(
+        SchemaValidatorException.class,
+        () -> SchemaValidator.isValid(invalidXmlString, SchemaValidator.SchemaVersion.OBDS_3_0_4));
+    assertThat(SchemaValidator.isValid(xmlString, SchemaValidator.SchemaVersion.OBDS_3_0_4))
+        .isTrue();
+  }
+
+  @Test
+  void shouldValidateConcurrently() throws Exception {
+    var xmlString =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResource("testdaten/obdsv3_verlauf.xml")
+                .openStream()
+                .readAllBytes());
+
+    try (var executor = Executors.newFixedThreadPool(4)) {
+      var results =
+          executor.invokeAll(
+              Collections.<Callable<Boolean>>nCopies(
+                  32,
+                  () ->
+                      SchemaValidator.isValid(
+                          xmlString, SchemaValidator.SchemaVersion.OBDS_3_0_4)));
+      for (var result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    }
+  }
+
   @Test
   void shouldReturnRegExpPattern() {
     var x =
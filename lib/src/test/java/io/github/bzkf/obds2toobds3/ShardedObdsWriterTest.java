@@ -0,0 +1,243 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.basisdatensatz.obds.v3.MelderTyp;
+import de.basisdatensatz.obds.v3.OBDS;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedObdsWriterTest {
+
+  private ObdsMapper mapper;
+  private List<ShardOutputStream> shards;
+  private int openShards;
+  private int maxOpenShards;
+
+  @BeforeEach
+  void setUp() {
+    mapper = ObdsMapper.builder().build();
+    shards = new ArrayList<>();
+  }
+
+  @Test
+  void shouldSplitAfterNumberOfPatients() throws Exception {
+    var obds = readObdsWithPatients(3);
+
+    try (var writer = mapper.shardedObdsWriter(this::openShard, 2, 0)) {
+      write(writer, obds);
+      assertThat(writer.getShardCount()).isEqualTo(2);
+    }
+
+    assertThat(shards).hasSize(2);
+    var first = readShard(0);
+    assertThat(first.getAbsender().getAbsenderID()).isEqualTo(obds.getAbsender().getAbsenderID());
+    assertThat(first.getMeldedatum()).isEqualTo(obds.getMeldedatum());
+    assertThat(first.getMengePatient().getPatient())
+        .extracting(OBDS.MengePatient.Patient::getPatientID)
+        .containsExactly("P1", "P2");
+    assertThat(readShard(1).getMengePatient().getPatient())
+        .extracting(OBDS.MengePatient.Patient::getPatientID)
+        .containsExactly("P3");
+  }
+
+  @Test
+  void shouldOnlyWriteReferencedMelder() throws Exception {
+    var obds = readObdsWithPatients(3);
+
+    try (var writer = mapper.shardedObdsWriter(this::openShard, 2, 0)) {
+      write(writer, obds);
+    }
+
+    assertThat(readShard(0).getMengeMelder().getMelder())
+        .extracting(MelderTyp::getID)
+        .containsExactly("M1", "M2");
+    assertThat(readShard(1).getMengeMelder().getMelder())
+        .extracting(MelderTyp::getID)
+        .containsExactly("M3");
+  }
+
+  @Test
+  void shouldSplitAfterNumberOfBytes() throws Exception {
+    var obds = readObdsWithPatients(3);
+
+    try (var writer = mapper.shardedObdsWriter(this::openShard, 0, 1)) {
+      write(writer, obds);
+    }
+
+    assertThat(shards).hasSize(3);
+    for (int i = 0; i < shards.size(); i++) {
+      assertThat(readShard(i).getMengePatient().getPatient()).hasSize(1);
+    }
+  }
+
+  @Test
+  void shouldWriteSameDocumentAsUnshardedWriterIfNotFull() throws Exception {
+    var expected = new ByteArrayOutputStream();
+    mapper.writeMappedXml(
+        getClass().getClassLoader().getResource("testdaten/obdsv2_1.xml").openStream(), expected);
+
+    try (var reader =
+            mapper.adtGekidReader(
+                getClass().getClassLoader().getResource("testdaten/obdsv2_1.xml").openStream());
+        var writer = mapper.shardedObdsWriter(this::openShard, 100, 0)) {
+      mapper.writeMappedXml(reader, writer);
+    }
+
+    assertThat(shards)
+        .singleElement()
+        .satisfies(
+            shard ->
+                assertThat(shard.toString(StandardCharsets.UTF_8))
+                    .isEqualTo(expected.toString(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void shouldCompleteFullShardsIfMengeMelderIsKnown() throws Exception {
+    var obds = readObdsWithPatients(3);
+
+    try (var writer =
+        mapper.shardedObdsWriter(this::openShard, 1, 0, readObdsWithPatients(3).getMengeMelder())) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      writer.writePatient(obds.getMengePatient().getPatient().get(0));
+      writer.writePatient(obds.getMengePatient().getPatient().get(1));
+
+      // The first shard is complete before the last patient has been written
+      assertThat(shards).hasSize(2);
+      assertThat(shards.getFirst().closed).isTrue();
+      assertThat(readShard(0).getMengeMelder().getMelder())
+          .extracting(MelderTyp::getID)
+          .containsExactly("M1");
+
+      writer.writePatient(obds.getMengePatient().getPatient().get(2));
+      writer.writeFooter(null);
+    }
+
+    assertThat(shards).hasSize(3).allMatch(shard -> shard.closed);
+    assertThat(maxOpenShards).isEqualTo(1);
+    assertThat(readShard(2).getMengeMelder().getMelder())
+        .extracting(MelderTyp::getID)
+        .containsExactly("M3");
+  }
+
+  @Test
+  void shouldKeepOneShardOpenIfMengeMelderIsUnknown() throws Exception {
+    var obds = readObdsWithPatients(5);
+
+    try (var writer = mapper.shardedObdsWriter(this::openShard, 1, 0)) {
+      writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+      for (var patient : obds.getMengePatient().getPatient()) {
+        writer.writePatient(patient);
+      }
+      // Full shards are spooled until Menge_Melder is known
+      assertThat(shards).isEmpty();
+      writer.writeFooter(obds.getMengeMelder());
+    }
+
+    assertThat(shards).hasSize(5).allMatch(shard -> shard.closed);
+    assertThat(maxOpenShards).isEqualTo(1);
+    for (int i = 0; i < shards.size(); i++) {
+      assertThat(readShard(i).getMengePatient().getPatient())
+          .extracting(OBDS.MengePatient.Patient::getPatientID)
+          .containsExactly("P" + (i + 1));
+    }
+  }
+
+  @Test
+  void shouldNotAcceptNegativeLimits() {
+    assertThrows(
+        IllegalArgumentException.class, () -> mapper.shardedObdsWriter(this::openShard, -1, 0));
+  }
+
+  private ShardOutputStream openShard(int shard) {
+    assertThat(shard).isEqualTo(shards.size() + 1);
+    var outputStream = new ShardOutputStream();
+    shards.add(outputStream);
+    openShards++;
+    maxOpenShards = Math.max(maxOpenShards, openShards);
+    return outputStream;
+  }
+
+  private OBDS readShard(int index) throws Exception {
+    return mapper.readValue(new ByteArrayInputStream(shards.get(index).toByteArray()), OBDS.class);
+  }
+
+  private static void write(ShardedObdsWriter writer, OBDS obds) throws Exception {
+    writer.writeHeader(obds.getAbsender(), obds.getMeldedatum());
+    for (var patient : obds.getMengePatient().getPatient()) {
+      writer.writePatient(patient);
+    }
+    writer.writeFooter(obds.getMengeMelder());
+  }
+
+  /** Reads a document with given number of patients, each reported by its own Melder */
+  private OBDS readObdsWithPatients(int count) throws Exception {
+    var obds = readObds();
+    obds.getMengePatient().getPatient().clear();
+    obds.getMengeMelder().getMelder().clear();
+    for (int i = 1; i <= count + 1; i++) {
+      var copy = readObds();
+      var melder = copy.getMengeMelder().getMelder().getFirst();
+      melder.setID("M" + i);
+      obds.getMengeMelder().getMelder().add(melder);
+      if (i > count) {
+        // Not referenced by any patient
+        continue;
+      }
+      var patient = copy.getMengePatient().getPatient().getFirst();
+      patient.setPatientID("P" + i);
+      for (var meldung : patient.getMengeMeldung().getMeldung()) {
+        meldung.setMeldungID(meldung.getMeldungID() + "-" + i);
+        meldung.setMelderID("M" + i);
+      }
+      obds.getMengePatient().getPatient().add(patient);
+    }
+    return obds;
+  }
+
+  private OBDS readObds() throws Exception {
+    return mapper.readValue(
+        getClass().getClassLoader().getResource("testdaten/obdsv3_1.xml").openStream(), OBDS.class);
+  }
+
+  private class ShardOutputStream extends ByteArrayOutputStream {
+    private boolean closed;
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        openShards--;
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.basisdatensatz.obds.v3.TodTyp;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+import javax.xml.datatype.DatatypeFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class XmlDateModuleTest {
+
+  @ParameterizedTest
+  @CsvSource({
+    "2024-03-05T00:00:00.000+01:00",
+    "2024-07-05T00:00:00.000+02:00",
+    "2024-03-05T00:00:00.000Z",
+    "2024-03-05T23:30:00.000-05:00",
+    "2024-03-31T02:30:00",
+    "2024-03-05",
+    "2024-03-05+14:00",
+  })
+  void shouldFormatDateLikeSimpleDateFormat(String lexicalRepresentation) throws Exception {
+    var defaultTimeZone = TimeZone.getDefault();
+    try {
+      TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+
+      var calendar = DatatypeFactory.newInstance().newXMLGregorianCalendar(lexicalRepresentation);
+      var expected =
+          new SimpleDateFormat("yyyy-MM-dd").format(calendar.toGregorianCalendar().getTime());
+
+      assertThat(XmlDateModule.format(calendar)).isEqualTo(expected);
+    } finally {
+      TimeZone.setDefault(defaultTimeZone);
+    }
+  }
+
+  @Test
+  void shouldKeepPartialDate() throws Exception {
+    var calendar = DatatypeFactory.newInstance().newXMLGregorianCalendar("2024");
+
+    assertThat(XmlDateModule.format(calendar)).isEqualTo("2024");
+  }
+
+  @Test
+  void shouldReadAndWriteDate() throws Exception {
+    var tod =
+        ObdsMapper.XML_MAPPER.readValue(
+            "<Tod><Sterbedatum>2024-03-05</Sterbedatum></Tod>", TodTyp.class);
+
+    assertThat(tod.getSterbedatum().toXMLFormat()).isEqualTo("2024-03-05");
+    assertThat(ObdsMapper.XML_MAPPER.writeValueAsString(tod))
+        .contains("<Sterbedatum>2024-03-05</Sterbedatum>");
+  }
+}
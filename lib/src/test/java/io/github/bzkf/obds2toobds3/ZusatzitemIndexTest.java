@@ -0,0 +1,65 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.bzkf.obds2toobds3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.basisdatensatz.obds.v3.MengeZusatzitemTyp;
+import org.junit.jupiter.api.Test;
+
+class ZusatzitemIndexTest {
+
+  @Test
+  void shouldFindFirstWertByArt() {
+    var index =
+        new ZusatzitemIndex(
+            mengeZusatzitem("Einsender_Ort", "Musterstadt", "Einsender_Ort", "Anderswo"));
+
+    assertThat(index.wert("Einsender_Ort")).contains("Musterstadt");
+    assertThat(index.wert("Einsender_PLZ")).isEmpty();
+  }
+
+  @Test
+  void shouldKeepOrderOfItemsWithoutEinsender() {
+    var index =
+        new ZusatzitemIndex(
+            mengeZusatzitem("B", "1", "Einsender_Ort", "Musterstadt", "A", "2", "EinsenderX", "3"));
+
+    assertThat(index.withoutEinsender())
+        .extracting(MengeZusatzitemTyp.Zusatzitem::getArt)
+        .containsExactly("B", "A");
+  }
+
+  private static MengeZusatzitemTyp mengeZusatzitem(String... artAndWert) {
+    var result = new MengeZusatzitemTyp();
+    for (int i = 0; i < artAndWert.length; i += 2) {
+      var zusatzitem = new MengeZusatzitemTyp.Zusatzitem();
+      zusatzitem.setArt(artAndWert[i]);
+      zusatzitem.setWert(artAndWert[i + 1]);
+      result.getZusatzitem().add(zusatzitem);
+    }
+    return result;
+  }
+}
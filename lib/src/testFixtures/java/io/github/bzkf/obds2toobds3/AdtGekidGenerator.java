@@ -0,0 +1,783 @@
+/*
+ * This file is part of obds2-to-obds3
+ *
+ * Copyright (c) 2025 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.bzkf.obds2toobds3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Generator for synthetic ADT_GEKID 2.2.3 documents of configurable size and shape, e.g. for load
+ * tests, memory tests and benchmarks.
+ *
+ * <p>The generated document is valid against the ADT_GEKID schema and streamed into the output, so
+ * documents of millions of Meldungen can be generated. Clean records can be mapped into valid oBDS
+ * v3 documents. Dirty records are mapped only using {@link
+ * ObdsMapper.Builder#fixMissingId(boolean)}, {@link ObdsMapper.Builder#ignoreUnmappable(boolean)}
+ * or {@link ObdsMapper.Builder#ignoreInvalidPatients(boolean)}, depending on the kind of dirt.
+ *
+ * <p>The result only depends on the configuration. Each patient is generated using its own random
+ * numbers derived from the seed and its index, so the first patients of a document do not change if
+ * the number of patients changes.
+ *
+ * <p>The generator is part of the test fixtures of the library, so tests of all modules can use it.
+ * It can be run using <code>./gradlew :benchmarks:generateAdtGekid
+ * -PgeneratorArgs="--patients 1000 --output build/synthetic.xml"</code>.
+ */
+public final class AdtGekidGenerator {
+
+  /** Content of a generated Meldung */
+  public enum MeldungArt {
+    DIAGNOSE,
+    OP,
+    ST,
+    SYST,
+    VERLAUF,
+    TOD,
+    TUMORKONFERENZ,
+    ZUSATZITEM,
+    MODUL_PROSTATA
+  }
+
+  /** Kinds of dirty records */
+  public enum Dirt {
+    /** Meldung without Meldung_ID - mapped only if missing IDs are fixed */
+    MISSING_MELDUNG_ID,
+    /** Tumorzuordnung without Tumor_ID - mapped only if missing IDs are fixed */
+    MISSING_TUMOR_ID,
+    /** Meldung without Tumorzuordnung and ICD code - mapped only if unmappable items are ignored */
+    INCOMPLETE_DIAGNOSE,
+    /** Patient without valid Versichertendaten - not valid against the oBDS schema */
+    INVALID_VERSICHERTENDATEN
+  }
+
+  private static final String USAGE =
+      "usage: AdtGekidGenerator [--seed <seed>] [--patients <count>] [--meldungen <per patient>]"
+          + " [--melder <count>] [--dirty <share>] [--mix <ART=weight,...>] [--output <file>]";
+
+  private static final String NAMESPACE = "http://www.gekid.de/namespace";
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+  private static final LocalDate FIRST_DIAGNOSEDATUM = LocalDate.of(2015, 1, 1);
+  private static final int DIAGNOSEDATUM_DAYS = 3000;
+
+  private static final String[][] TUMORS = {
+    {"C17.1", "T"},
+    {"C18.0", "T"},
+    {"C34.1", "R"},
+    {"C34.1", "L"},
+    {"C50.4", "L"},
+    {"C50.9", "R"},
+    {"C61", "T"},
+    {"C72.0", "R"},
+    {"C91.00", "T"}
+  };
+  private static final String[] NACHNAMEN = {
+    "Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner", "Becker"
+  };
+  private static final String[] VORNAMEN_M = {"Klaus", "Peter", "Jürgen", "Stefan", "Patrick"};
+  private static final String[] VORNAMEN_W = {"Ursula", "Petra", "Sabine", "Monika", "Jana"};
+  private static final String[] ORTE = {"Musterhausen", "Teststadt", "Beispieldorf", "Würzburg"};
+  private static final String[] OPS = {
+    "5-015.4", "5-852.g0", "5-930.00", "5-930.4", "5-021.0", "5-984", "5-010.01", "5-988.0"
+  };
+  private static final String[] MORPHOLOGIE = {"8140/3", "8500/3", "8070/3", "9391/3"};
+  private static final String[][] RESIDUALSTATUS = {{"R0", "R0"}, {"R1(cy+)", "R1"}, {"R0", "RX"}};
+  private static final String[] SUBSTANZEN = {
+    "Methotrexat (MTX)", "Cyclophosphamid", "Cytarabin (AraC)", "Mercaptopurin (6-MP, Purinethol)"
+  };
+  private static final String[][] ZIELGEBIETE = {{"5.4.-", "L"}, {"1.2.", "R"}, {"3.3.", "M"}};
+
+  private final long seed;
+  private final int patients;
+  private final int meldungenPerPatient;
+  private final int melder;
+  private final double dirtyShare;
+  private final Set<Dirt> dirt;
+  private final MeldungArt[] meldungArten;
+  private final int[] cumulativeWeights;
+
+  private AdtGekidGenerator(Builder builder) {
+    this.seed = builder.seed;
+    this.patients = builder.patients;
+    this.meldungenPerPatient = builder.meldungenPerPatient;
+    this.melder = builder.melder;
+    this.dirtyShare = builder.dirtyShare;
+    this.dirt = EnumSet.copyOf(builder.dirt);
+    var weighted = builder.weights.entrySet().stream().filter(e -> e.getValue() > 0).toList();
+    if (weighted.isEmpty()) {
+      throw new IllegalArgumentException("At least one Meldung must have a weight");
+    }
+    this.meldungArten = new MeldungArt[weighted.size()];
+    this.cumulativeWeights = new int[weighted.size()];
+    var sum = 0;
+    for (int i = 0; i < weighted.size(); i++) {
+      sum += weighted.get(i).getValue();
+      meldungArten[i] = weighted.get(i).getKey();
+      cumulativeWeights[i] = sum;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Writes the document into given output stream. The stream is not closed.
+   *
+   * @param outputStream The output stream
+   * @throws IOException if the document cannot be written
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    try {
+      var writer =
+          XMLOutputFactory.newFactory()
+              .createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+      new DocumentWriter(writer).write();
+      writer.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot write ADT_GEKID document", e);
+    }
+  }
+
+  /**
+   * Returns the document as string
+   *
+   * @return the document
+   */
+  public String writeString() {
+    var outputStream = new ByteArrayOutputStream();
+    try {
+      write(outputStream);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return outputStream.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a document configured by command line arguments into a file or to stdout
+   *
+   * @param args The command line arguments
+   * @throws IOException if the document cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    Arguments arguments;
+    try {
+      arguments = parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    var generator = arguments.builder().build();
+    if (null == arguments.output()) {
+      generator.write(System.out);
+      System.out.flush();
+      return;
+    }
+    try (var outputStream = Files.newOutputStream(arguments.output())) {
+      generator.write(outputStream);
+    }
+  }
+
+  static Arguments parseArguments(String[] args) {
+    var builder = builder();
+    Path output = null;
+    for (int i = 0; i < args.length; i += 2) {
+      var name = args[i];
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value of " + name);
+      }
+      var value = args[i + 1];
+      try {
+        switch (name) {
+          case "--seed" -> builder.seed(Long.parseLong(value));
+          case "--patients" -> builder.patients(Integer.parseInt(value));
+          case "--meldungen" -> builder.meldungenPerPatient(Integer.parseInt(value));
+          case "--melder" -> builder.melder(Integer.parseInt(value));
+          case "--dirty" -> builder.dirtyShare(Double.parseDouble(value));
+          case "--mix" -> {
+            for (var entry : value.split(",")) {
+              var parts = entry.split("=");
+              if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected ART=weight, got " + entry);
+              }
+              builder.weight(
+                  MeldungArt.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+          }
+          case "--output" -> output = Path.of(value);
+          default -> throw new IllegalArgumentException("Unknown argument: " + name);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            String.format("Invalid value of %s: %s", name, value), e);
+      }
+    }
+    return new Arguments(builder, output);
+  }
+
+  private MeldungArt nextMeldungArt(Random random) {
+    var value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return meldungArten[i];
+      }
+    }
+    throw new IllegalStateException("Unreachable");
+  }
+
+  private Dirt nextDirt(Random random, boolean patient) {
+    if (random.nextDouble() >= dirtyShare) {
+      return null;
+    }
+    var candidates = new ArrayList<Dirt>();
+    for (var kind : dirt) {
+      if ((kind == Dirt.INVALID_VERSICHERTENDATEN) == patient) {
+        candidates.add(kind);
+      }
+    }
+    return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+  }
+
+  private static <T> T pick(Random random, T[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static String date(LocalDate date) {
+    return DATE_FORMAT.format(date);
+  }
+
+  record Arguments(Builder builder, Path output) {}
+
+  /** Writes a single document - holds the state of the patient currently written */
+  private class DocumentWriter {
+    private final XMLStreamWriter writer;
+    private int depth;
+
+    private Random random;
+    private String patientId;
+    private String[] tumor;
+    private LocalDate diagnosedatum;
+    private int meldungIndex;
+
+    private DocumentWriter(XMLStreamWriter writer) {
+      this.writer = writer;
+    }
+
+    private void write() throws XMLStreamException {
+      writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      start("ADT_GEKID");
+      writer.writeDefaultNamespace(NAMESPACE);
+      writer.writeAttribute("Schema_Version", "2.2.3");
+
+      start("Absender");
+      writer.writeAttribute("Absender_ID", "SYN");
+      writer.writeAttribute("Software_ID", "obds2-to-obds3");
+      writer.writeAttribute("Installations_ID", "1");
+      leaf("Absender_Bezeichnung", "Synthetisches Register");
+      leaf("Absender_Anschrift", "Musterstraße 1, 01234 Musterhausen");
+      end();
+
+      start("Menge_Patient");
+      for (int i = 0; i < patients; i++) {
+        writePatient(i);
+      }
+      end();
+
+      start("Menge_Melder");
+      for (int i = 1; i <= melder; i++) {
+        start("Melder");
+        writer.writeAttribute("Melder_ID", melderId(i));
+        leaf("Melder_IKNR", String.format("10%07d", i));
+        leaf("Meldende_Stelle", "Klinik " + i);
+        end();
+      }
+      end();
+
+      end();
+      writer.writeCharacters("\n");
+      writer.writeEndDocument();
+    }
+
+    private void writePatient(int index) throws XMLStreamException {
+      random = new Random(seed ^ (index * 0x9E3779B97F4A7C15L));
+      patientId = String.valueOf(100_000_000L + index);
+      tumor = pick(random, TUMORS);
+      diagnosedatum = FIRST_DIAGNOSEDATUM.plusDays(random.nextInt(DIAGNOSEDATUM_DAYS));
+      meldungIndex = 0;
+
+      start("Patient");
+      writeStammdaten(nextDirt(random, true));
+      start("Menge_Meldung");
+      var meldungen = 1 + random.nextInt(2 * meldungenPerPatient - 1);
+      for (int i = 0; i < meldungen; i++) {
+        writeMeldung(nextMeldungArt(random), nextDirt(random, false));
+      }
+      end();
+      end();
+    }
+
+    private void writeStammdaten(Dirt dirt) throws XMLStreamException {
+      var weiblich =
+          switch (tumor[0]) {
+            case "C61" -> false;
+            case "C50.4", "C50.9" -> true;
+            default -> random.nextBoolean();
+          };
+      var nachname = pick(random, NACHNAMEN);
+      start("Patienten_Stammdaten");
+      writer.writeAttribute("Patient_ID", patientId);
+      if (dirt == Dirt.INVALID_VERSICHERTENDATEN) {
+        leaf("KrankenkassenNr", "999999999");
+      } else {
+        leaf(
+            "KrankenversichertenNr",
+            String.format(
+                "%c%09d", (char) ('A' + random.nextInt(26)), random.nextInt(1_000_000_000)));
+        leaf("KrankenkassenNr", String.format("10%07d", random.nextInt(10_000_000)));
+      }
+      leaf("Patienten_Nachname", nachname);
+      leaf("Patienten_Vornamen", pick(random, weiblich ? VORNAMEN_W : VORNAMEN_M));
+      leaf("Patienten_Geburtsname", nachname);
+      leaf("Patienten_Geschlecht", weiblich ? "W" : "M");
+      leaf(
+          "Patienten_Geburtsdatum", date(diagnosedatum.minusDays(10_000 + random.nextInt(20_000))));
+      start("Menge_Adresse");
+      start("Adresse");
+      leaf("Patienten_Strasse", "Testweg");
+      leaf("Patienten_Hausnummer", String.valueOf(1 + random.nextInt(200)));
+      leaf("Patienten_Land", "DE");
+      leaf("Patienten_PLZ", String.format("%05d", 1067 + random.nextInt(98_000)));
+      leaf("Patienten_Ort", pick(random, ORTE));
+      end();
+      end();
+      end();
+    }
+
+    private void writeMeldung(MeldungArt art, Dirt dirt) throws XMLStreamException {
+      meldungIndex++;
+      var meldungId = String.format("%s-%d", patientId, meldungIndex);
+      var datum = diagnosedatum.plusDays(random.nextInt(365));
+
+      start("Meldung");
+      if (dirt != Dirt.MISSING_MELDUNG_ID) {
+        writer.writeAttribute("Meldung_ID", meldungId);
+      }
+      writer.writeAttribute("Melder_ID", melderId(1 + random.nextInt(melder)));
+      leaf("Meldedatum", date(datum.plusDays(1 + random.nextInt(30))));
+      leaf("Meldebegruendung", "I");
+
+      if (dirt == Dirt.INCOMPLETE_DIAGNOSE) {
+        leaf("Meldeanlass", "statusaenderung");
+        start("Diagnose");
+        leaf("Diagnosesicherung", "1");
+        leaf("Allgemeiner_Leistungszustand", "0");
+        end();
+        end();
+        return;
+      }
+
+      leaf("Meldeanlass", meldeanlass(art));
+      start("Tumorzuordnung");
+      if (dirt != Dirt.MISSING_TUMOR_ID) {
+        writer.writeAttribute("Tumor_ID", "1");
+      }
+      leaf("Primaertumor_ICD_Code", tumor[0]);
+      leaf("Primaertumor_ICD_Version", "10 2021 GM");
+      leaf("Diagnosedatum", date(diagnosedatum));
+      leaf("Seitenlokalisation", tumor[1]);
+      end();
+
+      switch (art) {
+        case DIAGNOSE -> writeDiagnose(false);
+        case OP -> writeOp(meldungId, datum);
+        case ST -> writeSt(meldungId, datum);
+        case SYST -> writeSyst(meldungId, datum);
+        case VERLAUF -> writeVerlauf(meldungId, datum, false);
+        case TOD -> writeVerlauf(meldungId, datum, true);
+        case TUMORKONFERENZ -> {
+          writeDiagnose(false);
+          start("Menge_Tumorkonferenz");
+          start("Tumorkonferenz");
+          writer.writeAttribute("Tumorkonferenz_ID", meldungId + "-TK");
+          leaf("Tumorkonferenz_Datum", date(datum));
+          leaf("Tumorkonferenz_Typ", pick(random, new String[] {"praeth", "postop", "postth"}));
+          end();
+          end();
+        }
+        case ZUSATZITEM -> {
+          writeDiagnose(false);
+          start("Menge_Zusatzitem");
+          start("Zusatzitem");
+          leaf("Art", "Histologie_Material_Text");
+          leaf("Wert", "Stanzbiopsie");
+          end();
+          start("Zusatzitem");
+          leaf("Art", "Einsender_Klinik_Abteilung_Praxis");
+          leaf("Wert", "Pathologie " + pick(random, ORTE));
+          end();
+          end();
+        }
+        case MODUL_PROSTATA -> writeDiagnose(true);
+      }
+      end();
+    }
+
+    private String meldeanlass(MeldungArt art) {
+      return switch (art) {
+        case DIAGNOSE, MODUL_PROSTATA -> "diagnose";
+        case OP, ST, SYST -> "behandlungsende";
+        case VERLAUF, TOD, TUMORKONFERENZ, ZUSATZITEM -> "statusaenderung";
+      };
+    }
+
+    private void writeDiagnose(boolean modulProstata) throws XMLStreamException {
+      start("Diagnose");
+      if (modulProstata) {
+        leaf("Primaertumor_ICD_Code", tumor[0]);
+        leaf("Primaertumor_ICD_Version", "10 2021 GM");
+      }
+      leaf("Diagnosesicherung", pick(random, new String[] {"1", "7"}));
+      if (modulProstata) {
+        leaf("Seitenlokalisation", tumor[1]);
+        var primaer = 3 + random.nextInt(3);
+        var sekundaer = 3 + random.nextInt(3);
+        start("Modul_Prostata");
+        start("GleasonScore");
+        leaf("GleasonGradPrimaer", String.valueOf(primaer));
+        leaf("GleasonGradSekundaer", String.valueOf(sekundaer));
+        leaf("GleasonScoreErgebnis", String.valueOf(primaer + sekundaer));
+        end();
+        leaf("AnlassGleasonScore", "U");
+        leaf("DatumStanzen", diagnosedatum.toString());
+        start("CaBefallStanze");
+        leaf("Prozentzahl", String.valueOf(1 + random.nextInt(100)));
+        end();
+        leaf("DatumPSA", diagnosedatum.plusDays(1).toString());
+        end();
+      } else {
+        leaf("Allgemeiner_Leistungszustand", String.valueOf(random.nextInt(3)));
+      }
+      end();
+    }
+
+    private void writeOp(String meldungId, LocalDate datum) throws XMLStreamException {
+      start("Menge_OP");
+      start("OP");
+      writer.writeAttribute("OP_ID", meldungId + "-OP");
+      leaf("OP_Intention", pick(random, new String[] {"K", "P"}));
+      leaf("OP_Datum", date(datum));
+      start("Menge_OPS");
+      var count = 1 + random.nextInt(4);
+      for (int i = 0; i < count; i++) {
+        leaf("OP_OPS", pick(random, OPS));
+      }
+      end();
+      leaf("OP_OPS_Version", String.valueOf(datum.getYear()));
+      start("Histologie");
+      writer.writeAttribute("Histologie_ID", meldungId + "-H");
+      leaf("Tumor_Histologiedatum", date(datum.plusDays(1 + random.nextInt(5))));
+      var morphologie = pick(random, MORPHOLOGIE);
+      leaf("Histologie_EinsendeNr", "N " + morphologie);
+      leaf("Morphologie_Code", morphologie);
+      leaf("Morphologie_ICD_O_Version", "32");
+      leaf("Grading", pick(random, new String[] {"1", "2", "3", "U"}));
+      end();
+      start("TNM");
+      writer.writeAttribute("TNM_ID", meldungId + "-TNM");
+      leaf("TNM_Datum", date(datum.minusDays(random.nextInt(5))));
+      leaf("TNM_Version", "8");
+      leaf("TNM_c_p_u_Praefix_T", "p");
+      leaf("TNM_T", pick(random, new String[] {"is", "1", "2", "3"}));
+      leaf("TNM_c_p_u_Praefix_N", "c");
+      leaf("TNM_N", "0");
+      leaf("TNM_c_p_u_Praefix_M", "c");
+      leaf("TNM_M", "0");
+      leaf("TNM_L", "L0");
+      leaf("TNM_V", "V0");
+      leaf("TNM_Pn", "Pn0");
+      end();
+      var residualstatus = pick(random, RESIDUALSTATUS);
+      start("Residualstatus");
+      leaf("Lokale_Beurteilung_Residualstatus", residualstatus[0]);
+      leaf("Gesamtbeurteilung_Residualstatus", residualstatus[1]);
+      end();
+      start("Menge_Komplikation");
+      leaf("OP_Komplikation", "N");
+      end();
+      start("Menge_Operateur");
+      leaf("Name_Operateur", pick(random, NACHNAMEN) + ", " + pick(random, VORNAMEN_W));
+      end();
+      end();
+      end();
+    }
+
+    private void writeSt(String meldungId, LocalDate datum) throws XMLStreamException {
+      start("Menge_ST");
+      start("ST");
+      writer.writeAttribute("ST_ID", meldungId + "-ST");
+      leaf("ST_Intention", pick(random, new String[] {"K", "P"}));
+      leaf("ST_Stellung_OP", pick(random, new String[] {"O", "A", "N"}));
+      start("Menge_Bestrahlung");
+      var count = 1 + random.nextInt(2);
+      for (int i = 0; i < count; i++) {
+        var zielgebiet = pick(random, ZIELGEBIETE);
+        start("Bestrahlung");
+        leaf("ST_Zielgebiet", zielgebiet[0]);
+        leaf("ST_Seite_Zielgebiet", zielgebiet[1]);
+        if (i == count - 1) {
+          leaf("ST_Ende_Datum", date(datum));
+        }
+        end();
+      }
+      end();
+      leaf("ST_Ende_Grund", "E");
+      start("Menge_Nebenwirkung");
+      start("ST_Nebenwirkung");
+      leaf("Nebenwirkung_Grad", pick(random, new String[] {"K", "3", "4", "U"}));
+      end();
+      end();
+      end();
+      end();
+    }
+
+    private void writeSyst(String meldungId, LocalDate datum) throws XMLStreamException {
+      start("Menge_SYST");
+      start("SYST");
+      writer.writeAttribute("SYST_ID", meldungId + "-SYST");
+      leaf("SYST_Intention", pick(random, new String[] {"K", "P"}));
+      leaf("SYST_Stellung_OP", pick(random, new String[] {"O", "A", "N"}));
+      start("Menge_Therapieart");
+      leaf("SYST_Therapieart", "CH");
+      if (random.nextBoolean()) {
+        leaf("SYST_Therapieart", "IM");
+      }
+      end();
+      leaf("SYST_Beginn_Datum", date(datum.minusDays(30 + random.nextInt(60))));
+      start("Menge_Substanz");
+      var count = 1 + random.nextInt(SUBSTANZEN.length);
+      for (int i = 0; i < count; i++) {
+        leaf("SYST_Substanz", SUBSTANZEN[i]);
+      }
+      end();
+      leaf("SYST_Ende_Grund", "P");
+      leaf("SYST_Ende_Datum", date(datum));
+      start("Menge_Nebenwirkung");
+      start("SYST_Nebenwirkung");
+      leaf("Nebenwirkung_Grad", "U");
+      leaf("Nebenwirkung_Art", "10055599");
+      leaf("Nebenwirkung_Version", "4.03");
+      end();
+      end();
+      end();
+      end();
+    }
+
+    private void writeVerlauf(String meldungId, LocalDate datum, boolean tod)
+        throws XMLStreamException {
+      start("Menge_Verlauf");
+      start("Verlauf");
+      writer.writeAttribute("Verlauf_ID", meldungId + "-V");
+      if (tod) {
+        start("Tod");
+        leaf("Sterbedatum", date(datum));
+        leaf("Tod_tumorbedingt", pick(random, new String[] {"J", "N", "U"}));
+        start("Menge_Todesursache");
+        leaf("Todesursache_ICD", tumor[0]);
+        leaf("Todesursache_ICD_Version", "10 2021 GM");
+        end();
+        end();
+      } else {
+        leaf("Untersuchungsdatum_Verlauf", date(datum));
+        leaf("Gesamtbeurteilung_Tumorstatus", "B");
+        leaf("Allgemeiner_Leistungszustand", String.valueOf(random.nextInt(3)));
+      }
+      end();
+      end();
+    }
+
+    private String melderId(int index) {
+      return String.format("M%03d", index);
+    }
+
+    private void start(String name) throws XMLStreamException {
+      indent();
+      writer.writeStartElement(name);
+      depth++;
+    }
+
+    private void end() throws XMLStreamException {
+      depth--;
+      indent();
+      writer.writeEndElement();
+    }
+
+    private void leaf(String name, String value) throws XMLStreamException {
+      indent();
+      writer.writeStartElement(name);
+      writer.writeCharacters(value);
+      writer.writeEndElement();
+    }
+
+    private void indent() throws XMLStreamException {
+      writer.writeCharacters("\n");
+      for (int i = 0; i < depth; i++) {
+        writer.writeCharacters("  ");
+      }
+    }
+  }
+
+  public static class Builder {
+    private long seed = 1;
+    private int patients = 100;
+    private int meldungenPerPatient = 3;
+    private int melder = 1;
+    private double dirtyShare;
+    private final Set<Dirt> dirt = EnumSet.allOf(Dirt.class);
+    private final Map<MeldungArt, Integer> weights = new EnumMap<>(MeldungArt.class);
+
+    private Builder() {
+      for (var art : MeldungArt.values()) {
+        weights.put(art, 1);
+      }
+    }
+
+    /**
+     * The seed of the random numbers. Documents generated using the same configuration are equal.
+     *
+     * @param seed The seed
+     * @return the configured builder
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * The number of patients
+     *
+     * @param patients The number of patients
+     * @return the configured builder
+     */
+    public Builder patients(int patients) {
+      if (patients < 0) {
+        throw new IllegalArgumentException("Patients must not be negative");
+      }
+      this.patients = patients;
+      return this;
+    }
+
+    /**
+     * The average number of Meldungen per patient. The number of Meldungen of each patient is
+     * evenly distributed between 1 and twice the average minus 1.
+     *
+     * @param meldungenPerPatient The average number of Meldungen
+     * @return the configured builder
+     */
+    public Builder meldungenPerPatient(int meldungenPerPatient) {
+      if (meldungenPerPatient < 1) {
+        throw new IllegalArgumentException("Meldungen per patient must be at least 1");
+      }
+      this.meldungenPerPatient = meldungenPerPatient;
+      return this;
+    }
+
+    /**
+     * The number of Melder referenced by the Meldungen
+     *
+     * @param melder The number of Melder
+     * @return the configured builder
+     */
+    public Builder melder(int melder) {
+      if (melder < 1 || melder > 999) {
+        throw new IllegalArgumentException("Melder must be between 1 and 999");
+      }
+      this.melder = melder;
+      return this;
+    }
+
+    /**
+     * The relative frequency of Meldungen with given content. All contents have a weight of 1 by
+     * default.
+     *
+     * @param art The content of the Meldung
+     * @param weight The weight - 0 to not generate Meldungen with this content
+     * @return the configured builder
+     */
+    public Builder weight(MeldungArt art, int weight) {
+      if (weight < 0) {
+        throw new IllegalArgumentException("Weight must not be negative");
+      }
+      this.weights.put(art, weight);
+      return this;
+    }
+
+    /**
+     * The share of dirty patients and Meldungen, e.g. 0.05 for 5 percent
+     *
+     * @param dirtyShare The share between 0 and 1
+     * @return the configured builder
+     */
+    public Builder dirtyShare(double dirtyShare) {
+      if (dirtyShare < 0 || dirtyShare > 1) {
+        throw new IllegalArgumentException("Dirty share must be between 0 and 1");
+      }
+      this.dirtyShare = dirtyShare;
+      return this;
+    }
+
+    /**
+     * The kinds of dirty records to generate. All kinds are generated by default.
+     *
+     * @param dirt The kinds of dirty records
+     * @return the configured builder
+     */
+    public Builder dirt(Set<Dirt> dirt) {
+      this.dirt.clear();
+      this.dirt.addAll(dirt);
+      return this;
+    }
+
+    public AdtGekidGenerator build() {
+      return new AdtGekidGenerator(this);
+    }
+  }
+}